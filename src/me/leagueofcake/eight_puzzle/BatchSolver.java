@@ -0,0 +1,203 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * BatchSolver class - solves a stream of puzzles on a pool of worker threads, for corpora too large to enter into
+ * the CLI one at a time.
+ *
+ * Each input line holds one puzzle, its numbers listed row by row and separated by whitespace (0 for the space).
+ * Blank lines and lines starting with # are skipped. For each puzzle, one line is written, in the same order as the
+ * input:
+ *   - the number of moves in an optimal solution, a space, and the moves of the space (u/d/l/r, as in the CLI)
+ *   - "unsolvable" for a valid board that cannot be solved
+ *   - "invalid" for a line that is not a board of the expected size
+ *
+ * Puzzles are solved by IDA* (see IDAStarSearch), with one search per worker thread reused for every puzzle that
+ * thread solves. Only a bounded window of puzzles is in flight at once, so the input is streamed rather than read
+ * into memory, and results are written as soon as every earlier puzzle has been written.
+ *
+ * Usage: BatchSolver [-size WIDTHxHEIGHT] [-threads N] [-heuristic NAME | -pdb DIRECTORY] [input file] [output file]
+ * The input and output default to stdin and stdout (or use -), the size to 3x3 and the threads to one per core. The
+ * heuristic is one of the names taken by Heuristic.of(), or a pattern database in the given directory, and defaults
+ * to the Manhattan distance.
+ */
+public class BatchSolver {
+    // Number of puzzles queued per worker thread before the oldest result is waited for
+    private static final int IN_FLIGHT_PER_THREAD = 256;
+
+    private final BoardGeometry geometry;
+    private final int threads;
+    private final ThreadLocal<IDAStarSearch> searches;
+
+    /**
+     * Constructs a BatchSolver for puzzles of one board size. The heuristic must already be loaded, if given.
+     *
+     * @param width - Number of columns on the boards
+     * @param height - Number of rows on the boards
+     * @param heuristic - Heuristic for the board size, or null to use the Manhattan distance
+     * @param threads - Number of worker threads
+     */
+    public BatchSolver (int width, int height, Heuristic heuristic, int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("At least one thread is needed");
+        this.geometry = BoardGeometry.of(width, height);
+        this.threads = threads;
+        this.searches = ThreadLocal.withInitial(() -> new IDAStarSearch(geometry, heuristic));
+    }
+
+    /**
+     * Solves every puzzle in the input, writing one result line per puzzle in input order.
+     *
+     * @param in - Reader for the puzzles, one per line
+     * @param out - Writer for the results
+     * @return The number of puzzles read.
+     * @throws IOException If the input could not be read or the output could not be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for a result.
+     */
+    public long solveAll (BufferedReader in, Writer out) throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Deque<Future<String>> window = new ArrayDeque<>();
+        int maxInFlight = threads * IN_FLIGHT_PER_THREAD;
+        long count = 0;
+
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+                if (window.size() >= maxInFlight) writeResult(window.poll(), out);
+                window.add(pool.submit(() -> solveLine(trimmed)));
+                count++;
+            }
+            while (!window.isEmpty()) writeResult(window.poll(), out);
+        } finally {
+            pool.shutdownNow();
+        }
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Helper function waiting for a result and writing it as a line.
+     *
+     * @param result - The pending result
+     * @param out - Writer for the results
+     * @throws IOException If the output could not be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the result.
+     */
+    private void writeResult (Future<String> result, Writer out) throws IOException, InterruptedException {
+        try {
+            out.write(result.get());
+            out.write('\n');
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Solving a puzzle failed", e.getCause());
+        }
+    }
+
+    /**
+     * Parses and solves a single puzzle, using the calling thread's search.
+     *
+     * @param line - The numbers of the board, row by row
+     * @return The result line for the puzzle.
+     */
+    private String solveLine (String line) {
+        String[] splitInput = line.split("\\s+");
+        if (splitInput.length != geometry.cells) return "invalid";
+
+        int[][] board = new int[geometry.height][geometry.width];
+        try {
+            for (int cell = 0; cell < geometry.cells; cell++) {
+                board[cell / geometry.width][cell % geometry.width] = Integer.parseInt(splitInput[cell]);
+            }
+        } catch (NumberFormatException e) {
+            return "invalid";
+        }
+
+        EightPuzzle puzzle = new EightPuzzle(board);
+        if (!puzzle.isValidBoard()) return "invalid";
+        if (!puzzle.isSolvable()) return "unsolvable";
+
+        byte[] moves = searches.get().search(puzzle);
+        StringBuilder sb = new StringBuilder(moves.length + 4).append(moves.length);
+        if (moves.length > 0) sb.append(' ');
+        for (byte direction : moves) sb.append("udlr".charAt(direction));
+        return sb.toString();
+    }
+
+    /**
+     * Runs a batch from the command line - see the class description for the arguments.
+     *
+     * @param args - Command-line arguments
+     * @throws IOException If a file or the pattern database could not be read or written.
+     * @throws InterruptedException If the thread is interrupted while waiting for a result.
+     */
+    public static void main (String[] args) throws IOException, InterruptedException {
+        int width = EightPuzzle.DEFAULT_WIDTH, height = EightPuzzle.DEFAULT_HEIGHT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String heuristicName = null;
+        String patternDatabaseDir = null;
+        List<String> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-size":
+                    String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-heuristic":
+                    heuristicName = args[++i];
+                    break;
+                case "-pdb":
+                    patternDatabaseDir = args[++i];
+                    break;
+                default:
+                    files.add(args[i]);
+            }
+        }
+
+        Heuristic heuristic = null;
+        BatchSolver batch;
+        try {
+            if (patternDatabaseDir != null || heuristicName != null) {
+                if (!PackedBoard.fits(width, height)) {
+                    System.err.println(String.format("Error: -heuristic and -pdb need boards of up to %d cells.",
+                            PackedBoard.MAX_CELLS));
+                    return;
+                }
+                PackedBoard geometry = (PackedBoard) BoardGeometry.of(width, height);
+                heuristic = patternDatabaseDir != null
+                        ? new PatternDatabase(geometry, new File(patternDatabaseDir))
+                        : Heuristic.of(heuristicName, geometry);
+            }
+            batch = new BatchSolver(width, height, heuristic, threads);
+        } catch (IllegalArgumentException e) {
+            // Unknown heuristic, a heuristic that does not support the size, or an invalid size or thread count
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+        if (heuristic != null) heuristic.load();
+
+        String input = files.size() > 0 ? files.get(0) : "-";
+        String output = files.size() > 1 ? files.get(1) : "-";
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                     input.equals("-") ? System.in : new FileInputStream(input), StandardCharsets.UTF_8), 1 << 16);
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     output.equals("-") ? System.out : new FileOutputStream(output), StandardCharsets.UTF_8), 1 << 16)) {
+            long start = System.nanoTime();
+            long count = batch.solveAll(in, out);
+            long elapsed = System.nanoTime() - start;
+            System.err.println(String.format("Solved %d puzzles in %d ms on %d threads (%.0f puzzles/s).",
+                    count, elapsed / 1000000, threads, count * 1e9 / Math.max(elapsed, 1)));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BoardGeometry class holding the precomputed move and distance tables for one board size.
+ *
+ * Cells are numbered row by row. For each cell and direction, the tables give the cell the space moves to, and the
+ * change in Manhattan distance when a number slides into the space. Instances are immutable and shared between
+ * solvers through of(), which keeps one instance per board size. The common sizes (3x3, 4x4 and 5x5) are built when
+ * the class is loaded.
+ *
+ * Boards have at most MAX_BOARD_CELLS cells, so the numbers fit in the bytes IDA* keeps its tiles in, and the tables
+ * (which grow with the square of the number of cells) stay small.
+ */
+public class BoardGeometry {
+    // Directions the space can move in - opposite directions differ only in the lowest bit
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+    // Largest number of cells on a board (e.g. 11x11)
+    public static final int MAX_BOARD_CELLS = 128;
+
+    private static final Map<Integer, BoardGeometry> SIZES = new ConcurrentHashMap<>();
+
+    static {
+        of(3, 3);
+        of(4, 4);
+        of(5, 5);
+    }
+
+    public final int width;
+    public final int height;
+    public final int cells;
+
+    private final int[] neighbours;
+    private final int[] distances;
+    private final int[] deltas;
+
+    /**
+     * Constructs the tables for a board of the given size.
+     *
+     * @param width - Number of columns on the board
+     * @param height - Number of rows on the board
+     * @throws IllegalArgumentException If the board is empty or has more than MAX_BOARD_CELLS cells.
+     */
+    public BoardGeometry (int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid board size %dx%d", width, height));
+        }
+        if ((long) width * height > MAX_BOARD_CELLS) {
+            throw new IllegalArgumentException(String.format("Boards larger than %d cells are not supported",
+                    MAX_BOARD_CELLS));
+        }
+        this.width = width;
+        this.height = height;
+        this.cells = width * height;
+
+        // Cell the space moves to for each (cell, direction), or -1 if the move is off the board
+        neighbours = new int[cells << 2];
+        for (int cell = 0; cell < cells; cell++) {
+            int row = cell / width, col = cell % width;
+            neighbours[(cell << 2) | UP] = row > 0 ? cell - width : -1;
+            neighbours[(cell << 2) | DOWN] = row + 1 < height ? cell + width : -1;
+            neighbours[(cell << 2) | LEFT] = col > 0 ? cell - 1 : -1;
+            neighbours[(cell << 2) | RIGHT] = col + 1 < width ? cell + 1 : -1;
+        }
+
+        // Manhattan distance of each number from each cell to its goal cell (the space is not counted)
+        distances = new int[cells * cells];
+        for (int num = 1; num < cells; num++) {
+            int targetRow = (num - 1) / width, targetCol = (num - 1) % width;
+            for (int cell = 0; cell < cells; cell++) {
+                distances[num * cells + cell] = Math.abs(targetRow - cell / width) + Math.abs(targetCol - cell % width);
+            }
+        }
+
+        // Change in Manhattan distance for each (number, space cell, direction) - the number slides into the space
+        deltas = new int[(cells * cells) << 2];
+        for (int num = 1; num < cells; num++) {
+            for (int space = 0; space < cells; space++) {
+                for (int direction = UP; direction <= RIGHT; direction++) {
+                    int from = neighbour(space, direction);
+                    if (from < 0) continue;
+                    deltas[((num * cells + space) << 2) | direction] =
+                            distances[num * cells + space] - distances[num * cells + from];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the shared tables for a board size - a PackedBoard if boards of that size fit in a long.
+     *
+     * @param width - Number of columns on the board
+     * @param height - Number of rows on the board
+     * @return The BoardGeometry for the size.
+     * @throws IllegalArgumentException If the board is empty or has more than MAX_BOARD_CELLS cells.
+     */
+    public static BoardGeometry of (int width, int height) {
+        return SIZES.computeIfAbsent(width * 1000 + height,
+                key -> PackedBoard.fits(width, height) ? new PackedBoard(width, height) : new BoardGeometry(width, height));
+    }
+
+    /**
+     * @param space - The cell index of the space
+     * @param direction - One of UP, DOWN, LEFT or RIGHT
+     * @return The cell index the space moves to, or -1 if the space cannot move in that direction.
+     */
+    public int neighbour (int space, int direction) {
+        return neighbours[(space << 2) | direction];
+    }
+
+    /**
+     * @param num - A number on the board (0 for the space)
+     * @param cell - The cell index the number is in
+     * @return The Manhattan distance of the number to its goal cell, or 0 for the space.
+     */
+    public int distance (int num, int cell) {
+        return distances[num * cells + cell];
+    }
+
+    /**
+     * Gives the change in Manhattan distance for a single move in O(1), so that solvers can carry the distance along
+     * with each state instead of rescanning the board.
+     *
+     * @param num - The number that slides into the space (the number in neighbour(space, direction))
+     * @param space - The cell index of the space before the move
+     * @param direction - The direction the space moves in
+     * @return The Manhattan distance after the move minus the Manhattan distance before it (always 1 or -1).
+     */
+    public int manhattanDelta (int num, int space, int direction) {
+        return deltas[((num * cells + space) << 2) | direction];
+    }
+}
@@ -0,0 +1,177 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.util.Arrays;
+
+/**
+ * BucketQueue class - a priority queue of int items (e.g. NodeArena handles) for small non-negative integer
+ * priorities.
+ *
+ * Items are kept in one stack per (priority, depth) pair, stored as int arrays so queued items cost 4 bytes each.
+ * Polling returns an item with the lowest priority, breaking ties in favour of the greatest depth (items closer to a
+ * solution in A*), and the most recently added item after that. Adding is O(1), and polling is O(1) apart from
+ * skipping past buckets that have been emptied.
+ */
+public class BucketQueue {
+    // Result of poll() on an empty queue
+    public static final int EMPTY = -1;
+
+    private static final int INITIAL_BUCKETS = 32;
+    private static final int INITIAL_BUCKET_SIZE = 4;
+
+    private int[][][] items;    // items[priority][depth] is a stack of items
+    private int[][] counts;     // counts[priority][depth] is the size of the corresponding stack
+    private int[] maxDepth;     // maxDepth[priority] is the greatest depth with a non-empty stack, or -1
+    private int minPriority;
+    private int size;
+    private long allocated;     // Total length of the stacks, kept for getMemoryUsage()
+
+    /**
+     * Constructs an empty BucketQueue.
+     */
+    public BucketQueue () {
+        items = new int[INITIAL_BUCKETS][][];
+        counts = new int[INITIAL_BUCKETS][];
+        maxDepth = new int[INITIAL_BUCKETS];
+        Arrays.fill(maxDepth, -1);
+        minPriority = INITIAL_BUCKETS;
+    }
+
+    /**
+     * Adds an item to the queue.
+     *
+     * @param item - The item to be added (not negative)
+     * @param priority - The priority of the item (lower is polled first)
+     * @param depth - The depth of the item, used to break ties (higher is polled first)
+     */
+    public void add (int item, int priority, int depth) {
+        if (priority >= items.length) growPriorities(priority);
+        if (items[priority] == null) {
+            items[priority] = new int[Math.max(INITIAL_BUCKETS, depth + 1)][];
+            counts[priority] = new int[items[priority].length];
+        } else if (depth >= items[priority].length) {
+            growDepths(priority, depth);
+        }
+
+        int[] stack = items[priority][depth];
+        int count = counts[priority][depth];
+        if (stack == null) {
+            stack = items[priority][depth] = new int[INITIAL_BUCKET_SIZE];
+            allocated += INITIAL_BUCKET_SIZE;
+        } else if (count == stack.length) {
+            stack = items[priority][depth] = Arrays.copyOf(stack, count << 1);
+            allocated += count;
+        }
+        stack[count] = item;
+        counts[priority][depth] = count + 1;
+
+        if (depth > maxDepth[priority]) maxDepth[priority] = depth;
+        if (priority < minPriority) minPriority = priority;
+        size++;
+    }
+
+    /**
+     * Removes and returns the item with the lowest priority (ties broken on the greatest depth).
+     *
+     * @return The next item, or EMPTY if the queue is empty.
+     */
+    public int poll () {
+        if (size == 0) return EMPTY;
+
+        while (maxDepth[minPriority] < 0) minPriority++;
+        int priority = minPriority, depth = maxDepth[priority];
+
+        int count = --counts[priority][depth];
+        int item = items[priority][depth][count];
+
+        // Move maxDepth down to the next non-empty stack for this priority
+        if (count == 0) {
+            int[] priorityCounts = counts[priority];
+            while (depth >= 0 && priorityCounts[depth] == 0) depth--;
+            maxDepth[priority] = depth;
+        }
+        size--;
+        return item;
+    }
+
+    /**
+     * @return The lowest priority of any queued item, or Integer.MAX_VALUE if the queue is empty.
+     */
+    public int peekPriority () {
+        if (size == 0) return Integer.MAX_VALUE;
+        while (maxDepth[minPriority] < 0) minPriority++;
+        return minPriority;
+    }
+
+    /**
+     * @return Whether the queue is empty.
+     */
+    public boolean isEmpty () {
+        return size == 0;
+    }
+
+    /**
+     * @return The number of items in the queue.
+     */
+    public int size () {
+        return size;
+    }
+
+    /**
+     * @return The estimated number of bytes used by the stacks, which are kept when items are polled.
+     */
+    public long getMemoryUsage () {
+        return allocated * Integer.BYTES;
+    }
+
+    /**
+     * Removes every item, keeping the allocated buckets so the queue can be reused.
+     */
+    public void clear () {
+        for (int priority = minPriority; priority < items.length; priority++) {
+            for (int depth = 0; depth <= maxDepth[priority]; depth++) counts[priority][depth] = 0;
+            maxDepth[priority] = -1;
+        }
+        minPriority = items.length;
+        size = 0;
+    }
+
+    /**
+     * Helper function to grow the priority dimension so that the given priority fits.
+     *
+     * @param priority - The priority that needs to fit
+     */
+    private void growPriorities (int priority) {
+        int length = items.length;
+        while (length <= priority) length <<= 1;
+
+        int[][][] newItems = new int[length][][];
+        int[][] newCounts = new int[length][];
+        int[] newMaxDepth = new int[length];
+        System.arraycopy(items, 0, newItems, 0, items.length);
+        System.arraycopy(counts, 0, newCounts, 0, counts.length);
+        System.arraycopy(maxDepth, 0, newMaxDepth, 0, maxDepth.length);
+        Arrays.fill(newMaxDepth, maxDepth.length, length, -1);
+
+        items = newItems;
+        counts = newCounts;
+        maxDepth = newMaxDepth;
+    }
+
+    /**
+     * Helper function to grow the depth dimension of a priority so that the given depth fits.
+     *
+     * @param priority - The priority whose buckets need to grow
+     * @param depth - The depth that needs to fit
+     */
+    private void growDepths (int priority, int depth) {
+        int length = items[priority].length;
+        while (length <= depth) length <<= 1;
+
+        int[][] newItems = new int[length][];
+        int[] newCounts = new int[length];
+        System.arraycopy(items[priority], 0, newItems, 0, items[priority].length);
+        System.arraycopy(counts[priority], 0, newCounts, 0, counts[priority].length);
+        items[priority] = newItems;
+        counts[priority] = newCounts;
+    }
+}
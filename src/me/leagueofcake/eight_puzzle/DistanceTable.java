@@ -0,0 +1,141 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * DistanceTable class - the exact number of moves to the goal from every solvable state of a small board (e.g.
+ * the 181,440 states of the 8-puzzle).
+ *
+ * The table holds one byte per state, indexed by StateRanker, and is filled by a single parallel breadth-first
+ * search outwards from the goal (TwoBitBFS). Once it is loaded, an optimal solution for any state is found by
+ * repeatedly making a move to a neighbouring state one move closer to the goal, which takes a few table lookups per
+ * move and no search.
+ *
+ * Tables are only built or read when load() is first called. If a file is given, the table is saved to it after
+ * being built and memory-mapped from it afterwards, like the PatternDatabase tables.
+ */
+public class DistanceTable {
+    // Largest number of cells whose states can be indexed by an int (12! / 2 states)
+    public static final int MAX_CELLS = 12;
+
+    private final PackedBoard board;
+    private final StateRanker ranker;
+    private final File file;
+    private ByteBuffer distances;
+
+    /**
+     * Constructs a DistanceTable for the given board size. The table is not built or loaded until load() is called.
+     *
+     * @param board - The board size, with at most MAX_CELLS cells
+     * @param file - File the table is saved to and loaded from, or null to keep it in memory only
+     */
+    public DistanceTable (PackedBoard board, File file) {
+        if (board.cells > MAX_CELLS) {
+            throw new IllegalArgumentException(String.format("Boards larger than %d cells are not supported", MAX_CELLS));
+        }
+        this.board = board;
+        this.ranker = new StateRanker(board);
+        this.file = file;
+    }
+
+    /**
+     * @return The board the table is built for.
+     */
+    public PackedBoard getBoard () {
+        return board;
+    }
+
+    /**
+     * Makes the table available, reading it from the file if there is one, or building it (and saving it to the
+     * file, if given) otherwise. Does nothing if the table has already been loaded.
+     *
+     * @throws IOException If the table could not be read or written.
+     */
+    public synchronized void load () throws IOException {
+        if (distances != null) return;
+
+        int size = (int) ranker.size();
+        if (file == null) {
+            distances = ByteBuffer.wrap(build());
+            return;
+        }
+
+        if (!file.isFile() || file.length() != size) {
+            File directory = file.getAbsoluteFile().getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create distance table directory " + directory);
+            }
+            byte[] table = build();
+            try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+                out.setLength(0);
+                out.write(table);
+            }
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            distances = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Builds the table by a breadth-first search from the goal (see TwoBitBFS), on one thread per core. Moves are
+     * reversible, so the distance from the goal to a state is also the distance from the state to the goal.
+     *
+     * @return The distance of each state, indexed by StateRanker.
+     * @throws IOException If the thread is interrupted while building the table.
+     */
+    private byte[] build () throws IOException {
+        byte[] table = new byte[(int) ranker.size()];
+        try {
+            new TwoBitBFS(board, Runtime.getRuntime().availableProcessors()).run(table);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while building the distance table");
+        }
+        return table;
+    }
+
+    /**
+     * Looks up the distance of a state. load() must have been called first.
+     *
+     * @param state - The packed state, which must be solvable
+     * @param space - The cell index of the space in the state
+     * @return The number of moves in an optimal solution from the state.
+     */
+    public int distance (long state, int space) {
+        return distances.get((int) ranker.rank(state, space));
+    }
+
+    /**
+     * Finds an optimal solution by always moving to a neighbouring state one move closer to the goal. load() must
+     * have been called first.
+     *
+     * @param state - The packed state, which must be solvable
+     * @param space - The cell index of the space in the state
+     * @return The directions the space moves in (PackedBoard.UP, DOWN, LEFT or RIGHT), one per move.
+     */
+    public byte[] solve (long state, int space) {
+        int remaining = distance(state, space);
+        byte[] moves = new byte[remaining];
+
+        for (int i = 0; remaining > 0; i++, remaining--) {
+            for (int direction = PackedBoard.UP; direction <= PackedBoard.RIGHT; direction++) {
+                int from = board.neighbour(space, direction);
+                if (from < 0) continue;
+
+                long next = PackedBoard.slide(state, space, from);
+                if (distance(next, from) == remaining - 1) {
+                    moves[i] = (byte) direction;
+                    state = next;
+                    space = from;
+                    break;
+                }
+            }
+        }
+        return moves;
+    }
+}
@@ -6,31 +6,39 @@ import java.util.*;
  * EightPuzzle class representing a sliding n-puzzle (default 8-puzzle).
  *
  * Contains a 2d int array representing the board, with 0 representing the space.
- * Also tracks a Point property to speed up movement and possible move generation.
+ * Also tracks a Point property to speed up movement and possible move generation, and the Manhattan distance of the
+ * board, which is updated on each move rather than recomputed.
  *
- * Modify PUZZLE_WIDTH and PUZZLE_HEIGHT to create boards of different sizes. The generators and solver methods
- * should adapt accordingly.
+ * The size of the board is taken from the array it is constructed from, so boards of different sizes can be used
+ * side by side. The Solver works on the packed long form of the board provided by PackedBoard for boards of up to
+ * 16 cells (e.g. 3x3 and 4x4), and on a plain array for larger boards (e.g. 5x5).
  */
 public class EightPuzzle {
-    public static final int PUZZLE_WIDTH = 3;
-    public static final int PUZZLE_HEIGHT = 3;
+    public static final int DEFAULT_WIDTH = 3;
+    public static final int DEFAULT_HEIGHT = 3;
 
+    private final int width;
+    private final int height;
     private final int[][] board;
     private Point spacePoint;
+    private int manhattan;
 
     /**
      * Constructs a board state from a given input board.
      * A 0 denotes the empty space.
      *
-     * @param inputBoard - 2d int array of size PUZZLE_WIDTH * PUZZLE_HEIGHT
+     * @param inputBoard - 2d int array of height rows, each of width numbers
      */
     public EightPuzzle (int [][] inputBoard) {
-        board = new int[PUZZLE_HEIGHT][PUZZLE_WIDTH];
-        for (int row = 0; row < PUZZLE_HEIGHT; row++) {
-            for (int col = 0; col < PUZZLE_WIDTH; col++) {
+        height = inputBoard.length;
+        width = inputBoard[0].length;
+        board = new int[height][width];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
                 board[row][col] = inputBoard[row][col];
 
                 if (board[row][col] == 0) spacePoint = new Point(row, col);
+                manhattan += distance(board[row][col], row, col);
             }
         }
     }
@@ -41,28 +49,54 @@ public class EightPuzzle {
      * @param orig - Original EightPuzzle
      */
     public EightPuzzle (EightPuzzle orig) {
-        board = new int[PUZZLE_HEIGHT][PUZZLE_WIDTH];
-        for (int row = 0; row < PUZZLE_HEIGHT; row++) {
-            System.arraycopy(orig.board[row], 0, board[row], 0, orig.board.length);
+        height = orig.height;
+        width = orig.width;
+        board = new int[height][width];
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(orig.board[row], 0, board[row], 0, width);
         }
         spacePoint = new Point(orig.spacePoint.row, orig.spacePoint.col);
+        manhattan = orig.manhattan;
+    }
+
+    /**
+     * @return Number of columns on the board.
+     */
+    public int getWidth () {
+        return width;
+    }
+
+    /**
+     * @return Number of rows on the board.
+     */
+    public int getHeight () {
+        return height;
+    }
+
+    /**
+     * @param row - Row of the board
+     * @param col - Column of the board
+     * @return The number at the given position (0 for the space).
+     */
+    public int getTile (int row, int col) {
+        return board[row][col];
     }
 
     /**
      * Checks whether the current board is valid.
      * A board is valid if:
      *   - There are no duplicate numbers
-     *   - Each number from 0 - (PUZZLE_WIDTH * PUZZLE_HEIGHT - 1) is contained in the board
+     *   - Each number from 0 - (width * height - 1) is contained in the board
      *
      * @return Whether the board is valid
      */
     public boolean isValidBoard () {
-        boolean[] used = new boolean[PUZZLE_WIDTH * PUZZLE_HEIGHT];
+        boolean[] used = new boolean[width * height];
 
-        for (int row = 0; row < PUZZLE_HEIGHT; row++) {
-            for (int col = 0; col < PUZZLE_WIDTH; col++) {
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
                 int num = board[row][col];
-                if (num < 0 || num >= PUZZLE_WIDTH * PUZZLE_HEIGHT) return false;
+                if (num < 0 || num >= width * height) return false;
                 if (used[num]) return false;
                 used[num] = true;
             }
@@ -71,15 +105,19 @@ public class EightPuzzle {
     }
 
     /**
-     * Helper function to swap the contents of the board at Points p1 and p2.
+     * Helper function to move the number at (row, col) into the space, moving the space to (row, col).
      *
-     * @param p1 First point to have contents swapped
-     * @param p2 Second point to have contents swapped
+     * @param row Row of the number to be moved into the space
+     * @param col Column of the number to be moved into the space
      */
-    private void swap (Point p1, Point p2) {
-        int temp = board[p1.row][p1.col];
-        board[p1.row][p1.col] = board[p2.row][p2.col];
-        board[p2.row][p2.col] = temp;
+    private void moveSpaceTo (int row, int col) {
+        int num = board[row][col];
+        manhattan += distance(num, spacePoint.row, spacePoint.col) - distance(num, row, col);
+
+        board[spacePoint.row][spacePoint.col] = num;
+        board[row][col] = 0;
+        spacePoint.row = row;
+        spacePoint.col = col;
     }
 
     /**
@@ -93,7 +131,7 @@ public class EightPuzzle {
      * @return Whether the space (0) can move down.
      */
     public boolean canMoveDown () {
-        return spacePoint.row + 1 < PUZZLE_HEIGHT;
+        return spacePoint.row + 1 < height;
     }
 
     /**
@@ -107,47 +145,35 @@ public class EightPuzzle {
      * @return Whether the space (0) can move right
      */
     public boolean canMoveRight () {
-        return spacePoint.col + 1 < PUZZLE_WIDTH;
+        return spacePoint.col + 1 < width;
     }
 
     /**
      * Moves the space (0) up if possible, otherwise does nothing.
      */
     public void moveUp () {
-        if (canMoveUp()) {
-            swap(spacePoint, new Point(spacePoint.row - 1, spacePoint.col));
-            spacePoint.row--;
-        }
+        if (canMoveUp()) moveSpaceTo(spacePoint.row - 1, spacePoint.col);
     }
 
     /**
      * Moves the space (0) down if possible, otherwise does nothing.
      */
     public void moveDown () {
-        if (canMoveDown()) {
-            swap(spacePoint, new Point(spacePoint.row + 1, spacePoint.col));
-            spacePoint.row++;
-        }
+        if (canMoveDown()) moveSpaceTo(spacePoint.row + 1, spacePoint.col);
     }
 
     /**
      * Moves the space (0) left if possible, otherwise does nothing.
      */
     public void moveLeft () {
-        if (canMoveLeft()) {
-            swap(spacePoint, new Point(spacePoint.row, spacePoint.col - 1));
-            spacePoint.col--;
-        }
+        if (canMoveLeft()) moveSpaceTo(spacePoint.row, spacePoint.col - 1);
     }
 
     /**
      * Moves the space (0) right if possible, otherwise does nothing.
      */
     public void moveRight () {
-        if (canMoveRight()) {
-            swap(spacePoint, new Point(spacePoint.row, spacePoint.col + 1));
-            spacePoint.col++;
-        }
+        if (canMoveRight()) moveSpaceTo(spacePoint.row, spacePoint.col + 1);
     }
 
     /**
@@ -196,9 +222,9 @@ public class EightPuzzle {
     public boolean isSolved () {
         if (!isValidBoard()) return false;
         int expectedNum = 1;
-        for (int row = 0; row < PUZZLE_HEIGHT; row++) {
-            for (int col = 0; col < PUZZLE_WIDTH; col++) {
-                if (row == PUZZLE_HEIGHT - 1 && col == PUZZLE_WIDTH - 1) return board[row][col] == 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (row == height - 1 && col == width - 1) return board[row][col] == 0;
                 if (board[row][col] != expectedNum) return false;
                 expectedNum++;
             }
@@ -209,44 +235,62 @@ public class EightPuzzle {
     /**
      * Heuristic function based on the Manhattan distance to the goal state.
      *
-     * @return Total Manhattan distance to the goal state.
+     * The distance is tracked as the board changes (each move changes the distance of exactly one number by 1), so
+     * this is O(1).
+     *
+     * @return Total Manhattan distance of each number (excluding the space) to the goal state.
      */
     public int heuristicManhattan () {
-        int totalDistance = 0;
-        for (int row = 0; row < PUZZLE_HEIGHT; row++) {
-            for (int col = 0; col < PUZZLE_WIDTH; col++) {
-                int num = board[row][col];
-                int targetRow, targetCol;
-                if (num == 0) {
-                    targetRow = PUZZLE_HEIGHT - 1;
-                    targetCol = PUZZLE_WIDTH - 1;
-                } else {
-                    targetRow = (num - 1) / PUZZLE_HEIGHT;
-                    targetCol = (num - 1) % PUZZLE_HEIGHT;
-                }
-                totalDistance += (Math.abs(targetRow - row) + Math.abs(targetCol - col));
-            }
-        }
+        return manhattan;
+    }
 
-        return totalDistance;
+    /**
+     * Helper function giving the Manhattan distance of a number at the given position to its goal position.
+     *
+     * @param num - The number on the board
+     * @param row - Row of the number
+     * @param col - Column of the number
+     * @return The Manhattan distance of the number, or 0 for the space (keeping the heuristic admissible).
+     */
+    private int distance (int num, int row, int col) {
+        if (num == 0) return 0;
+
+        int targetRow = (num - 1) / width;
+        int targetCol = (num - 1) % width;
+        return Math.abs(targetRow - row) + Math.abs(targetCol - col);
     }
 
     /**
      * Checks whether a board is solvable by counting the number of inversions on the board.
-     * A board is solvable if the number of inversions is even.
+     * For odd widths, a board is solvable if the number of inversions is even. For even widths, each vertical move
+     * of the space also changes the parity of the inversions, so the number of rows between the space and the
+     * bottom row is added to the inversions first.
+     *
+     * On boards 1 tile wide or high, the space can only slide along the line and the tiles never change order, so
+     * such a board is solvable only if it has no inversions at all.
      *
      * @return Whether the board is solvable.
      */
     public boolean isSolvable() {
         int inversions = 0;
-        int[] arr = new int[EightPuzzle.PUZZLE_WIDTH * EightPuzzle.PUZZLE_HEIGHT];
+        int[] arr = new int[width * height];
         int curr = 0;
-        for (int row = 0; row < EightPuzzle.PUZZLE_HEIGHT; row++) {
-            for (int col = 0; col < EightPuzzle.PUZZLE_WIDTH; col++) {
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
                 arr[curr++] = board[row][col];
             }
         }
 
+        if (width == 1 || height == 1) {
+            int previous = 0;
+            for (int tile : arr) {
+                if (tile == 0) continue;
+                if (tile < previous) return false;
+                previous = tile;
+            }
+            return true;
+        }
+
         for (int i = 0; i < arr.length; i++) {
             for (int j = i + 1; j < arr.length; j++) {
                 if (arr[i] != 0 && arr[j] != 0 && arr[j] < arr[i]) {
@@ -255,15 +299,16 @@ public class EightPuzzle {
             }
         }
 
+        if (width % 2 == 0) inversions += height - 1 - spacePoint.row;
         return inversions % 2 == 0;
     }
 
     @Override
     public String toString () {
         StringBuilder sb = new StringBuilder();
-        for (int row = 0; row < PUZZLE_HEIGHT; row++) {
+        for (int row = 0; row < height; row++) {
             sb.append(Arrays.toString(board[row]));
-            if (row != PUZZLE_HEIGHT - 1) sb.append('\n');
+            if (row != height - 1) sb.append('\n');
         }
         return sb.toString();
     }
@@ -1,21 +1,36 @@
 package me.leagueofcake.eight_puzzle;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
  * CLI interface for interacting with the EightPuzzle class.
  *
  * One EightPuzzle can be loaded at any given time (tracked by the property currentPuzzle). Initially no
- * puzzle is loaded.
+ * puzzle is loaded. Puzzles are input and generated with the current board size (width x height), which starts at
+ * 3x3 and can be changed with the size command.
  *
  * The DEBUG flag prints additional debugging information - set as required.
  *
+ * Pattern database and distance tables are saved to and loaded from PATTERN_DATABASE_DIR.
+ *
  * A detailed list of commands can be found by inputting ? on the CLI.
  */
 public class EightPuzzleCLI {
     private EightPuzzle currentPuzzle;
+    private Heuristic heuristic;
+    private DistanceTable distanceTable;
+    private SolutionCache cache;
+    private long offHeapLimit;
+    private long budgetMillis;
+    private long budgetNodes;
+    private long budgetMegabytes;
+    private int width;
+    private int height;
     private boolean running;
     private static final boolean DEBUG = true;
+    private static final String PATTERN_DATABASE_DIR = "pdb";
 
     /**
      * Initialises and starts the CLI
@@ -32,6 +47,8 @@ public class EightPuzzleCLI {
     public EightPuzzleCLI () {
         if (DEBUG) System.out.println("Constructing EightPuzzleCLI()...");
         currentPuzzle = null;
+        width = EightPuzzle.DEFAULT_WIDTH;
+        height = EightPuzzle.DEFAULT_HEIGHT;
         running = true;
     }
 
@@ -66,12 +83,34 @@ public class EightPuzzleCLI {
                     printSolved(); break;
                 case "bfs":
                     solveBFS(); break;
+                case "bibfs":
+                    solveBidirectionalBFS(); break;
                 case "a*":
                     solveAStar(); break;
+                case "ida*":
+                    solveIDAStar(); break;
+                case "hda*":
+                    solveHDAStar(); break;
+                case "ara*":
+                    solveARAStar(scanner); break;
                 case "greedy":
                     solveGreedy(); break;
+                case "table":
+                    solveWithTable(); break;
                 case "chk":
                     checkSolvable(); break;
+                case "pdb":
+                    togglePatternDatabase(); break;
+                case "heur":
+                    inputHeuristic(scanner); break;
+                case "size":
+                    inputSize(scanner); break;
+                case "mem":
+                    inputOffHeapLimit(scanner); break;
+                case "budget":
+                    inputBudget(scanner); break;
+                case "cache":
+                    toggleCache(); break;
                 default:
                     System.out.println("Unknown command. Type ? to see the commands list.");
                     break;
@@ -104,7 +143,7 @@ public class EightPuzzleCLI {
      * Handles inputting a board from the command line. On success,
      * currentPuzzle is set to the newly created board.
      *
-     * Reads PUZZLE_WIDTH numbers on each line, with PUZZLE_HEIGHT lines.
+     * Reads width numbers on each line, with height lines.
      * If any input line is invalid (incorrect number of numbers
      * on line/non-integers found), re-requests the line.
      *
@@ -112,17 +151,17 @@ public class EightPuzzleCLI {
      */
     private void inputBoard (Scanner scanner) {
         System.out.println(String.format("Type %s numbers per line (%s - %s), separated by spaces.",
-                EightPuzzle.PUZZLE_WIDTH, 1, EightPuzzle.PUZZLE_WIDTH * EightPuzzle.PUZZLE_HEIGHT - 1));
+                width, 1, width * height - 1));
         System.out.println("Use 0 to denote the space in the board.");
 
-        int[][] inputBoard = new int[EightPuzzle.PUZZLE_HEIGHT][EightPuzzle.PUZZLE_WIDTH];
-        for (int row = 0; row < EightPuzzle.PUZZLE_HEIGHT; row++) {
+        int[][] inputBoard = new int[height][width];
+        for (int row = 0; row < height; row++) {
             String[] splitInput = scanner.nextLine().trim().split("\\s+");
-            if (splitInput.length != EightPuzzle.PUZZLE_WIDTH) {
+            if (splitInput.length != width) {
                 System.out.println("Error: invalid input size for the row");
                 row--;
             } else {
-                for (int col = 0; col < EightPuzzle.PUZZLE_WIDTH; col++) {
+                for (int col = 0; col < width; col++) {
                     try {
                         int num = Integer.parseInt(splitInput[col]);
                         inputBoard[row][col] = num;
@@ -144,6 +183,43 @@ public class EightPuzzleCLI {
         }
     }
 
+    /**
+     * Handles changing the board size from the command line. Unloads the current puzzle, heuristic and distance
+     * table, as they are for the old size.
+     *
+     * @param scanner Scanner object
+     */
+    private void inputSize (Scanner scanner) {
+        System.out.println("Type the width and height of the board, separated by a space.");
+        String[] splitInput = scanner.nextLine().trim().split("\\s+");
+        int newWidth, newHeight;
+        try {
+            if (splitInput.length != 2) throw new NumberFormatException();
+            newWidth = Integer.parseInt(splitInput[0]);
+            newHeight = Integer.parseInt(splitInput[1]);
+        } catch (NumberFormatException e) {
+            System.out.println("Error: expected two integers");
+            return;
+        }
+        if (newWidth < 2 || newHeight < 2) {
+            System.out.println("Error: the board must be at least 2x2");
+            return;
+        }
+        if ((long) newWidth * newHeight > BoardGeometry.MAX_BOARD_CELLS) {
+            System.out.println(String.format("Error: the board can have at most %d cells",
+                    BoardGeometry.MAX_BOARD_CELLS));
+            return;
+        }
+
+        width = newWidth;
+        height = newHeight;
+        currentPuzzle = null;
+        heuristic = null;
+        distanceTable = null;
+        cache = null;
+        System.out.println(String.format("Board size set to %dx%d.", width, height));
+    }
+
     /**
      * Prints out the board, if one is loaded.
      */
@@ -174,11 +250,22 @@ public class EightPuzzleCLI {
                 "l      Move the space left\n" +
                 "r      Move the space right\n" +
                 "bfs    Solves the puzzle using BFS\n" +
-                "greedy Solves the puzzle using a greedy approach with Manhattan distance heuristic\n" +
-                "a*     Solves the puzzle using A* search with Manhattan distance heuristic\n" +
+                "bibfs  Solves the puzzle using bidirectional BFS (from the puzzle and the goal)\n" +
+                "greedy Solves the puzzle using a greedy approach with the current heuristic\n" +
+                "a*     Solves the puzzle using A* search with the current heuristic\n" +
+                "ida*   Solves the puzzle using IDA* search with the current heuristic (low memory)\n" +
+                "hda*   Solves the puzzle using A* search in parallel on all available cores\n" +
+                "ara*   Solves the puzzle using anytime weighted A*, returning the best solution within a time limit\n" +
+                "table  Solves the puzzle using a precomputed table of distances (up to 12 cells)\n" +
                 "p      Prints the currently loaded board\n" +
                 "s      Prints whether the board is solved\n" +
                 "chk    Prints whether the current board is solvable\n" +
+                "heur   Sets the heuristic (Manhattan distance, linear conflict, walking distance or pattern database)\n" +
+                "pdb    Toggles the pattern database heuristic in place of Manhattan distance\n" +
+                "size   Sets the board size (width and height) for new puzzles\n" +
+                "mem    Keeps search nodes off the heap and limits each search's memory (0 keeps them on the heap)\n" +
+                "budget Sets the time, node and memory limits for each search (0 for no limit)\n" +
+                "cache  Toggles caching of optimal solutions between searches, printing its statistics\n" +
                 "?      Displays this command list\n" +
                 "q      Quits the program\n";
         System.out.println(helpText);
@@ -189,8 +276,18 @@ public class EightPuzzleCLI {
      */
     private void solveBFS () {
         if (checkPuzzleLoaded()) {
-            Solver solver = new Solver(currentPuzzle);
-            solver.solveBFS();
+            Solver solver = newSolver();
+            printResult(solver.solveBFS());
+        }
+    }
+
+    /**
+     * Solves the current board using bidirectional BFS, if one is loaded.
+     */
+    private void solveBidirectionalBFS () {
+        if (checkPuzzleLoaded()) {
+            Solver solver = newSolver();
+            printResult(solver.solveBidirectionalBFS());
         }
     }
 
@@ -199,8 +296,70 @@ public class EightPuzzleCLI {
      */
     private void solveAStar () {
         if (checkPuzzleLoaded()) {
+            Solver solver = newSolver();
+            printResult(solver.solveAStar());
+        }
+    }
+
+    /**
+     * Solve the current board using IDA*, if one is loaded.
+     */
+    private void solveIDAStar () {
+        if (checkPuzzleLoaded()) {
+            Solver solver = newSolver();
+            printResult(solver.solveIDAStar());
+        }
+    }
+
+    /**
+     * Solve the current board using parallel A* on all available cores, if one is loaded.
+     */
+    private void solveHDAStar () {
+        if (checkPuzzleLoaded()) {
+            Solver solver = newSolver();
+            printResult(solver.solveHDAStar(Runtime.getRuntime().availableProcessors()));
+        }
+    }
+
+    /**
+     * Solves the current board using ARA* within a time limit typed on the command line, if one is loaded.
+     *
+     * @param scanner Scanner object
+     */
+    private void solveARAStar (Scanner scanner) {
+        if (checkPuzzleLoaded()) {
+            System.out.println("Type the time limit in milliseconds.");
+            long timeLimit;
+            try {
+                timeLimit = Long.parseLong(scanner.nextLine().trim());
+                if (timeLimit < 0) throw new NumberFormatException();
+            } catch (NumberFormatException e) {
+                System.out.println("Error: expected a non-negative integer");
+                return;
+            }
+            Solver solver = newSolver();
+            printResult(solver.solveARAStar(timeLimit));
+        }
+    }
+
+    /**
+     * Solves the current board using a distance table, if one is loaded. The table is built and saved to
+     * PATTERN_DATABASE_DIR the first time.
+     */
+    private void solveWithTable () {
+        if (checkPuzzleLoaded()) {
+            if (width * height > DistanceTable.MAX_CELLS) {
+                System.out.println(String.format("Boards larger than %d cells are not supported!",
+                        DistanceTable.MAX_CELLS));
+                return;
+            }
+            if (distanceTable == null) {
+                String fileName = String.format("distances-%dx%d.bin", width, height);
+                distanceTable = new DistanceTable((PackedBoard) BoardGeometry.of(width, height),
+                        new File(PATTERN_DATABASE_DIR, fileName));
+            }
             Solver solver = new Solver(currentPuzzle);
-            solver.solveAStar();
+            printResult(solver.solveWithTable(distanceTable));
         }
     }
 
@@ -209,8 +368,193 @@ public class EightPuzzleCLI {
      */
     private void solveGreedy () {
         if (checkPuzzleLoaded()) {
-            Solver solver = new Solver(currentPuzzle);
-            solver.solveGreedy();
+            Solver solver = newSolver();
+            printResult(solver.solveGreedy());
+        }
+    }
+
+    /**
+     * @return A Solver for the current puzzle, with the current heuristic, off-heap memory limit, budget and cache.
+     */
+    private Solver newSolver () {
+        Solver solver = new Solver(currentPuzzle, heuristic);
+        solver.setOffHeapLimit(offHeapLimit);
+        solver.setCache(cache);
+        if (budgetMillis > 0 || budgetNodes > 0 || budgetMegabytes > 0) {
+            solver.setBudget(new SearchBudget(budgetMillis, budgetNodes, budgetMegabytes << 20));
+        }
+        return solver;
+    }
+
+    /**
+     * Toggles whether the solvers share a cache of optimal solutions, printing how well the cache did when it is
+     * turned off.
+     */
+    private void toggleCache () {
+        if (cache != null) {
+            System.out.println(String.format("Solution cache off - %d hits, %d misses, %d states cached, %d evicted "
+                    + "solutions.", cache.getHits(), cache.getMisses(), cache.size(), cache.getEvictions()));
+            cache = null;
+            return;
+        }
+        BoardGeometry geometry = BoardGeometry.of(width, height);
+        if (!(geometry instanceof PackedBoard)) {
+            System.out.println(String.format("Solutions can only be cached for boards of up to %d cells.",
+                    PackedBoard.MAX_CELLS));
+            return;
+        }
+        cache = new SolutionCache((PackedBoard) geometry);
+        System.out.println(String.format("Caching optimal solutions, up to %d states.",
+                SolutionCache.DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Handles setting the budget of each search from the command line - a time limit, a limit on expanded nodes and
+     * a limit on memory. A search that runs out of budget stops and prints its statistics so far.
+     *
+     * @param scanner Scanner object
+     */
+    private void inputBudget (Scanner scanner) {
+        System.out.println("Type the time limit in ms, the node limit and the memory limit in MB, separated by spaces "
+                + "(0 for no limit).");
+        String[] splitInput = scanner.nextLine().trim().split("\\s+");
+        try {
+            if (splitInput.length != 3) throw new NumberFormatException();
+            long millis = Long.parseLong(splitInput[0]);
+            long nodes = Long.parseLong(splitInput[1]);
+            long megabytes = Long.parseLong(splitInput[2]);
+            if (millis < 0 || nodes < 0 || megabytes < 0) throw new NumberFormatException();
+            budgetMillis = millis;
+            budgetNodes = nodes;
+            budgetMegabytes = megabytes;
+            System.out.println(String.format("Searches limited to %s, %s and %s.",
+                    millis == 0 ? "any time" : millis + " ms",
+                    nodes == 0 ? "any number of nodes" : nodes + " nodes",
+                    megabytes == 0 ? "any memory" : megabytes + " MB"));
+        } catch (NumberFormatException e) {
+            System.out.println("Error: expected three non-negative integers");
+        }
+    }
+
+    /**
+     * Handles setting the off-heap memory limit for searches from the command line - nodes are kept off the heap, and
+     * the limit covers them together with the search's tables and open list.
+     *
+     * @param scanner Scanner object
+     */
+    private void inputOffHeapLimit (Scanner scanner) {
+        System.out.println("Type the memory limit for each search in MB (0 to keep nodes on the heap with no limit).");
+        try {
+            long megabytes = Long.parseLong(scanner.nextLine().trim());
+            if (megabytes < 0) throw new NumberFormatException();
+            offHeapLimit = megabytes << 20;
+            System.out.println(megabytes == 0 ? "Keeping search nodes on the heap."
+                    : String.format("Keeping search nodes off the heap, limiting each search to %d MB.", megabytes));
+        } catch (NumberFormatException e) {
+            System.out.println("Error: expected a non-negative integer");
+        }
+    }
+
+    /**
+     * Prints out a solver's result - the boards along the solution and statistics about the search, or why the
+     * puzzle was not solved.
+     *
+     * @param result - The result returned by the Solver
+     */
+    private void printResult (SolveResult result) {
+        System.out.println(result.getMessage());
+        if (!result.isSolved()) {
+            // Searches stopped by their budget still report how far they got
+            if (result.getNodesExpanded() > 0) {
+                System.out.println(String.format("Expanded %d nodes, generated %d nodes in %.1f ms before stopping.",
+                        result.getNodesExpanded(), result.getNodesGenerated(), result.getElapsedNanos() / 1e6));
+            }
+            return;
+        }
+
+        for (EightPuzzle e : result.getPath()) {
+            System.out.println("Move:");
+            System.out.println(e);
+            System.out.println();
+        }
+
+        long[] threadNodesExpanded = result.getThreadNodesExpanded();
+        if (threadNodesExpanded.length > 1) {
+            for (int i = 0; i < threadNodesExpanded.length; i++) {
+                System.out.println(String.format("Thread %d expanded %d nodes.", i, threadNodesExpanded[i]));
+            }
+            System.out.println(String.format("Estimated speedup %.2fx on %d threads.", result.getSpeedup(),
+                    threadNodesExpanded.length));
+        }
+        System.out.println(String.format("Expanded %d nodes, generated %d nodes.", result.getNodesExpanded(),
+                result.getNodesGenerated()));
+        System.out.println(String.format("Peak open list %d, peak closed list %d.", result.getPeakOpenSize(),
+                result.getPeakClosedSize()));
+        System.out.println(String.format("Took %.1f ms (%.0f nodes/s).", result.getElapsedNanos() / 1e6,
+                result.getNodesPerSecond()));
+        System.out.println(String.format("Requires %d moves: %s", result.getMoveCount(), result.getMoveString()));
+        double bound = result.getSuboptimalityBound();
+        if (bound > 1 && !Double.isInfinite(bound)) {
+            System.out.println(String.format("At most %.3f times the optimal number of moves.", bound));
+        }
+    }
+
+    /**
+     * Toggles whether the solvers use a pattern database heuristic. The tables are built and saved to
+     * PATTERN_DATABASE_DIR the first time, which can take a while for larger boards.
+     */
+    private void togglePatternDatabase () {
+        if (heuristic instanceof PatternDatabase) {
+            heuristic = null;
+            System.out.println("Using Manhattan distance heuristic.");
+            return;
+        }
+        loadPatternDatabase();
+    }
+
+    /**
+     * Loads the pattern database for the current board size and makes the solvers use it.
+     */
+    private void loadPatternDatabase () {
+        if (!PackedBoard.fits(width, height)) {
+            System.out.println(String.format("Boards larger than %d cells are not supported!", PackedBoard.MAX_CELLS));
+            return;
+        }
+
+        System.out.println("Loading pattern database...");
+        PatternDatabase loading = new PatternDatabase(
+                (PackedBoard) BoardGeometry.of(width, height), new File(PATTERN_DATABASE_DIR));
+        try {
+            loading.load();
+            heuristic = loading;
+            System.out.println("Using pattern database heuristic.");
+        } catch (IOException e) {
+            System.out.println("Could not load pattern database: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles choosing the heuristic used by the solvers from the command line.
+     *
+     * @param scanner Scanner object
+     */
+    private void inputHeuristic (Scanner scanner) {
+        System.out.println("Type the heuristic - manhattan, lc (linear conflict), wd (walking distance) or pdb.");
+        String name = scanner.nextLine().trim();
+        if (name.equals("pdb")) {
+            loadPatternDatabase();
+            return;
+        }
+        if (!PackedBoard.fits(width, height)) {
+            System.out.println(String.format("Boards larger than %d cells only support the Manhattan distance!",
+                    PackedBoard.MAX_CELLS));
+            return;
+        }
+        try {
+            heuristic = Heuristic.of(name, (PackedBoard) BoardGeometry.of(width, height));
+            System.out.println("Using " + name + " heuristic.");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
         }
     }
 
@@ -233,11 +577,11 @@ public class EightPuzzleCLI {
      * Sets currentPuzzle to the newly generated board.
      */
     private void generatePuzzle () {
-        int[][] board = new int[EightPuzzle.PUZZLE_HEIGHT][EightPuzzle.PUZZLE_WIDTH];
+        int[][] board = new int[height][width];
 
         // List containing numbers 0 - (HEIGHT * WIDTH - 1)
         List<Integer> permutation = new ArrayList<>();
-        for (int i = 0; i < EightPuzzle.PUZZLE_WIDTH * EightPuzzle.PUZZLE_HEIGHT; i++) permutation.add(i);
+        for (int i = 0; i < width * height; i++) permutation.add(i);
 
         EightPuzzle result;
         Set<EightPuzzle> generated = new HashSet<>();
@@ -249,9 +593,9 @@ public class EightPuzzleCLI {
                 Collections.shuffle(permutation);
 
                 // Fill board with numbers in permutation
-                for (int row = 0; row < EightPuzzle.PUZZLE_HEIGHT; row++) {
-                    for (int col = 0; col < EightPuzzle.PUZZLE_WIDTH; col++) {
-                        board[row][col] = permutation.get((row * EightPuzzle.PUZZLE_WIDTH) + col);
+                for (int row = 0; row < height; row++) {
+                    for (int col = 0; col < width; col++) {
+                        board[row][col] = permutation.get((row * width) + col);
                     }
                 }
 
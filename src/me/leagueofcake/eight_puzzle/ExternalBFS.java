@@ -0,0 +1,450 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * ExternalBFS class - a breadth-first sweep of every solvable state of a board, kept on disk rather than in memory,
+ * for state spaces too large for a hash set (e.g. the 239,500,800 states of the 4x3 board).
+ *
+ * Each layer (the states at one distance from the goal) is stored in a file of packed states in ascending order.
+ * A layer is expanded by streaming its file, collecting the successors in a fixed-size buffer, and writing the buffer
+ * out as a sorted run file whenever it fills. Duplicates are then removed in one pass (delayed duplicate detection):
+ * the runs are merged, and any state also found in the previous two layers is dropped. That is enough, as every move
+ * leads to the layer before, the same layer or the layer after. Layer and run files are read through memory-mapped
+ * windows, so memory use is the buffer plus a few windows however large the layers grow.
+ *
+ * Every finished layer's size is appended to a histogram file in the scratch directory, so an interrupted sweep
+ * resumes from the last finished layer. Only the last two layers are needed to go on, so older layers can be deleted
+ * as the sweep goes, and the last layer holds the hardest states.
+ *
+ * Usage: ExternalBFS [-size WIDTHxHEIGHT] [-buffer STATES] [-keep] [-hardest N] DIRECTORY
+ * The size defaults to 3x3 and the buffer to 2^24 states (128 MB). -keep keeps every layer file, and -hardest prints
+ * up to N of the hardest states (default 10), in the input format of BatchSolver.
+ */
+public class ExternalBFS {
+    public static final int DEFAULT_BUFFER_STATES = 1 << 24;
+
+    private static final int STATE_BYTES = Long.BYTES;
+    private static final long MAP_WINDOW_BYTES = 1L << 30;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final PackedBoard board;
+    private final File directory;
+    private final int bufferStates;
+    private final boolean keepLayers;
+    private final List<Long> layerSizes = new ArrayList<>();
+
+    /**
+     * Constructs a sweep of the given board size. Nothing is read or written until run() is called.
+     *
+     * @param board - The board size
+     * @param directory - Scratch directory for the layer, run and histogram files
+     * @param bufferStates - Number of successor states collected in memory before a run file is written
+     * @param keepLayers - Whether to keep every layer file, rather than only the last two
+     */
+    public ExternalBFS (PackedBoard board, File directory, int bufferStates, boolean keepLayers) {
+        if (bufferStates <= 0) throw new IllegalArgumentException("The buffer must hold at least one state");
+        this.board = board;
+        this.directory = directory;
+        this.bufferStates = bufferStates;
+        this.keepLayers = keepLayers;
+    }
+
+    /**
+     * Runs the sweep until a layer is empty, resuming after the last finished layer if the scratch directory holds
+     * an earlier, interrupted sweep of the same board size.
+     *
+     * @param progress - Stream each finished layer's size is printed to, or null
+     * @return The number of states at each distance from the goal.
+     * @throws IOException If a file in the scratch directory could not be read or written.
+     */
+    public long[] run (PrintStream progress) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create scratch directory " + directory);
+        }
+        resume();
+        if (layerSizes.isEmpty()) {
+            try (StateWriter out = new StateWriter(tempFile(layerFile(0)))) {
+                out.write(board.goal());
+            }
+            finishLayer(0, 1);
+        }
+        if (progress != null) {
+            for (int depth = 0; depth < layerSizes.size(); depth++) printLayer(progress, depth);
+        }
+
+        while (layerSizes.get(layerSizes.size() - 1) > 0) {
+            int depth = layerSizes.size();
+            long size = expand(depth - 1);
+            finishLayer(depth, size);
+            if (!keepLayers && depth >= 2) Files.deleteIfExists(layerFile(depth - 2).toPath());
+            if (progress != null) printLayer(progress, depth);
+        }
+        return getLayerSizes();
+    }
+
+    /**
+     * @return The number of states at each finished distance from the goal.
+     */
+    public long[] getLayerSizes () {
+        long[] sizes = new long[layerSizes.size()];
+        for (int depth = 0; depth < sizes.length; depth++) sizes[depth] = layerSizes.get(depth);
+        return sizes;
+    }
+
+    /**
+     * Reads the first states of a finished layer - for the last non-empty layer, the hardest states of the board.
+     *
+     * @param depth - Distance of the layer from the goal
+     * @param limit - Largest number of states to read
+     * @return The packed states, in ascending order.
+     * @throws IOException If the layer file has been deleted or could not be read.
+     */
+    public long[] readLayer (int depth, int limit) throws IOException {
+        List<Long> states = new ArrayList<>();
+        try (StateReader in = new StateReader(layerFile(depth))) {
+            while (states.size() < limit && in.hasNext()) states.add(in.next());
+        }
+        long[] result = new long[states.size()];
+        for (int i = 0; i < result.length; i++) result[i] = states.get(i);
+        return result;
+    }
+
+    /**
+     * Helper function reading the histogram of an earlier sweep, and removing the files an interrupted layer left.
+     *
+     * @throws IOException If the histogram could not be read, or the last two finished layers are missing.
+     */
+    private void resume () throws IOException {
+        layerSizes.clear();
+        File histogram = histogramFile();
+        if (histogram.isFile()) {
+            for (String line : Files.readAllLines(histogram.toPath(), StandardCharsets.UTF_8)) {
+                String[] split = line.trim().split("\\s+");
+                if (split.length == 2) layerSizes.add(Long.parseLong(split[1]));
+            }
+        }
+
+        // Only this board's run files and unfinished layer files - the directory may hold other sizes' sweeps
+        String runPrefix = String.format("run-%dx%d-", board.width, board.height);
+        String layerPrefix = String.format("layer-%dx%d-", board.width, board.height);
+        File[] leftovers = directory.listFiles((dir, name) -> name.startsWith(runPrefix)
+                || (name.startsWith(layerPrefix) && name.endsWith(".tmp")));
+        if (leftovers != null) {
+            for (File file : leftovers) Files.delete(file.toPath());
+        }
+
+        int last = layerSizes.size() - 1;
+        for (int depth = Math.max(0, last - 1); depth <= last; depth++) {
+            if (layerSizes.get(depth) > 0 && !layerFile(depth).isFile()) {
+                throw new IOException("Cannot resume - missing layer file " + layerFile(depth));
+            }
+        }
+    }
+
+    /**
+     * Generates the next layer from a finished one. Successors are buffered, sorted and written as run files, then
+     * the runs are merged without duplicates or states of the previous two layers into the next layer's file.
+     *
+     * @param depth - Distance of the finished layer from the goal
+     * @return The number of states in the next layer.
+     * @throws IOException If a file could not be read or written.
+     */
+    private long expand (int depth) throws IOException {
+        List<File> runs = new ArrayList<>();
+        long[] buffer = new long[bufferStates];
+        int count = 0;
+
+        try (StateReader in = new StateReader(layerFile(depth))) {
+            while (in.hasNext()) {
+                long state = in.next();
+                int space = board.spaceIndex(state);
+                for (int direction = PackedBoard.UP; direction <= PackedBoard.RIGHT; direction++) {
+                    int from = board.neighbour(space, direction);
+                    if (from < 0) continue;
+
+                    if (count == buffer.length) {
+                        runs.add(writeRun(depth + 1, runs.size(), buffer, count));
+                        count = 0;
+                    }
+                    buffer[count++] = PackedBoard.slide(state, space, from);
+                }
+            }
+        }
+        if (count > 0) runs.add(writeRun(depth + 1, runs.size(), buffer, count));
+        buffer = null; // Let the merge use the memory
+
+        // Both layers' states are in ascending order, so each is read once alongside the merged runs
+        PriorityQueue<StateReader> merge = new PriorityQueue<>(Math.max(1, runs.size()),
+                (a, b) -> Long.compare(a.peek(), b.peek()));
+        long size = 0;
+        try (StateReader current = new StateReader(layerFile(depth));
+             StateReader previous = depth > 0 ? new StateReader(layerFile(depth - 1)) : null;
+             StateWriter out = new StateWriter(tempFile(layerFile(depth + 1)))) {
+            for (File run : runs) {
+                StateReader reader = new StateReader(run);
+                if (reader.hasNext()) merge.add(reader);
+                else reader.close();
+            }
+
+            long last = 0;
+            boolean first = true;
+            while (!merge.isEmpty()) {
+                StateReader reader = merge.poll();
+                long state = reader.next();
+                if (reader.hasNext()) merge.add(reader);
+                else reader.close();
+
+                if (!first && state == last) continue;
+                first = false;
+                last = state;
+                if (contains(current, state) || (previous != null && contains(previous, state))) continue;
+                out.write(state);
+                size++;
+            }
+        } finally {
+            for (StateReader reader : merge) reader.close();
+            for (File run : runs) Files.deleteIfExists(run.toPath());
+        }
+        return size;
+    }
+
+    /**
+     * Helper function checking whether a sorted layer contains a state, skipping past every smaller state. The states
+     * checked must be in ascending order.
+     *
+     * @param layer - Reader for the layer
+     * @param state - The packed state
+     * @return Whether the layer contains the state.
+     */
+    private static boolean contains (StateReader layer, long state) {
+        while (layer.hasNext() && layer.peek() < state) layer.next();
+        return layer.hasNext() && layer.peek() == state;
+    }
+
+    /**
+     * Helper function sorting a buffer of states, dropping duplicates, and writing them to a run file.
+     *
+     * @param depth - Distance from the goal of the layer being generated
+     * @param index - Number of runs already written for the layer
+     * @param buffer - The states
+     * @param count - Number of states in the buffer
+     * @return The run file.
+     * @throws IOException If the file could not be written.
+     */
+    private File writeRun (int depth, int index, long[] buffer, int count) throws IOException {
+        Arrays.parallelSort(buffer, 0, count);
+        File run = new File(directory, String.format("run-%dx%d-%d-%d.bin", board.width, board.height, depth, index));
+        try (StateWriter out = new StateWriter(run)) {
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || buffer[i] != buffer[i - 1]) out.write(buffer[i]);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Helper function making a finished layer permanent - the layer file is renamed into place before its size is
+     * added to the histogram, so a layer in the histogram is always complete.
+     *
+     * @param depth - Distance of the layer from the goal
+     * @param size - Number of states in the layer
+     * @throws IOException If the layer file could not be renamed or the histogram could not be written.
+     */
+    private void finishLayer (int depth, long size) throws IOException {
+        File layer = layerFile(depth);
+        if (size > 0) {
+            Files.move(tempFile(layer).toPath(), layer.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            Files.deleteIfExists(tempFile(layer).toPath());
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(histogramFile(), true), StandardCharsets.UTF_8)) {
+            out.write(String.format("%d %d%n", depth, size));
+        }
+        layerSizes.add(size);
+    }
+
+    /**
+     * Helper function printing a finished layer's size.
+     *
+     * @param progress - Stream to print to
+     * @param depth - Distance of the layer from the goal
+     */
+    private void printLayer (PrintStream progress, int depth) {
+        progress.println(String.format("Depth %d: %d states", depth, layerSizes.get(depth)));
+    }
+
+    /**
+     * @param depth - Distance of a layer from the goal
+     * @return The file of the layer's states - e.g. layer-4x3-12.bin.
+     */
+    private File layerFile (int depth) {
+        return new File(directory, String.format("layer-%dx%d-%d.bin", board.width, board.height, depth));
+    }
+
+    /**
+     * @param file - A layer file
+     * @return The file the layer is written to before it is finished.
+     */
+    private static File tempFile (File file) {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    /**
+     * @return The file holding the size of each finished layer, one "depth size" line per layer.
+     */
+    private File histogramFile () {
+        return new File(directory, String.format("histogram-%dx%d.txt", board.width, board.height));
+    }
+
+    /**
+     * Reader for a file of packed states, mapping the file into memory one window at a time.
+     */
+    private static class StateReader implements Closeable {
+        private final FileChannel channel;
+        private final long length;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        StateReader (File file) throws IOException {
+            channel = new RandomAccessFile(file, "r").getChannel();
+            length = channel.size() - channel.size() % STATE_BYTES;
+            map(0);
+        }
+
+        private void map (long start) throws IOException {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_WINDOW_BYTES, length - start));
+        }
+
+        boolean hasNext () {
+            return window.hasRemaining() || windowStart + window.capacity() < length;
+        }
+
+        long peek () {
+            if (!window.hasRemaining()) {
+                try {
+                    map(windowStart + window.capacity());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return window.getLong(window.position());
+        }
+
+        long next () {
+            long state = peek();
+            window.position(window.position() + STATE_BYTES);
+            return state;
+        }
+
+        @Override
+        public void close () throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writer appending packed states to a new file.
+     */
+    private static class StateWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+
+        StateWriter (File file) throws IOException {
+            RandomAccessFile out = new RandomAccessFile(file, "rw");
+            out.setLength(0);
+            channel = out.getChannel();
+        }
+
+        void write (long state) throws IOException {
+            if (!buffer.hasRemaining()) flush();
+            buffer.putLong(state);
+        }
+
+        private void flush () throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close () throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+
+    /**
+     * Runs a sweep from the command line - see the class description for the arguments.
+     *
+     * @param args - Command-line arguments
+     * @throws IOException If a file in the scratch directory could not be read or written.
+     */
+    public static void main (String[] args) throws IOException {
+        int width = EightPuzzle.DEFAULT_WIDTH, height = EightPuzzle.DEFAULT_HEIGHT;
+        int bufferStates = DEFAULT_BUFFER_STATES;
+        boolean keepLayers = false;
+        int hardest = 10;
+        String directory = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-size":
+                    String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                    break;
+                case "-buffer":
+                    bufferStates = Integer.parseInt(args[++i]);
+                    break;
+                case "-keep":
+                    keepLayers = true;
+                    break;
+                case "-hardest":
+                    hardest = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    directory = args[i];
+            }
+        }
+        if (directory == null) {
+            System.err.println("Usage: ExternalBFS [-size WIDTHxHEIGHT] [-buffer STATES] [-keep] [-hardest N] DIRECTORY");
+            return;
+        }
+
+        if (!PackedBoard.fits(width, height)) {
+            System.err.println(String.format("Error: the sweep needs a board of up to %d cells.",
+                    PackedBoard.MAX_CELLS));
+            return;
+        }
+        PackedBoard board = (PackedBoard) BoardGeometry.of(width, height);
+        ExternalBFS sweep = new ExternalBFS(board, new File(directory), bufferStates, keepLayers);
+        long start = System.nanoTime();
+        long[] sizes = sweep.run(System.out);
+
+        long total = 0;
+        for (long size : sizes) total += size;
+        int radius = sizes.length - 2; // The last layer is empty
+        System.out.println(String.format("%d states, radius %d, in %d s.", total, radius,
+                (System.nanoTime() - start) / 1000000000L));
+
+        System.out.println(String.format("Hardest states (%d moves):", radius));
+        for (long state : sweep.readLayer(radius, hardest)) {
+            StringBuilder sb = new StringBuilder();
+            for (int cell = 0; cell < board.cells; cell++) {
+                if (cell > 0) sb.append(' ');
+                sb.append(PackedBoard.tile(state, cell));
+            }
+            System.out.println(sb);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HDAStarSearch class - a parallel A* search (hash distributed A*, HDA*) over packed states.
+ *
+ * Every state is owned by one worker thread, chosen by hashing the state. Each worker keeps its own open list
+ * (BucketQueue) and table of the lowest depth each of its states has been reached at (StateTable), so neither is
+ * shared or locked. When a worker generates a state owned by another worker, it sends the node to that worker's
+ * inbox, a lock-free queue which the owner drains between expansions.
+ *
+ * Each worker stores the nodes it accepts in its own NodeArena. Parent handles are global - handle h refers to node
+ * (h / threads) of worker (h % threads)'s arena - so the solution is recovered across arenas once all workers have
+ * stopped. Handles are ints, so each arena holds at most Integer.MAX_VALUE / threads nodes, and a search that would
+ * need more stops with the reason OUT_OF_HANDLES.
+ *
+ * A worker with nothing to expand yields for its first IDLE_SPINS rounds, then parks for IDLE_PARK_NANOS at a time,
+ * so starved workers do not keep every core busy while they wait for nodes.
+ *
+ * Workers expand their best nodes independently, so the first solution found need not be optimal. It is kept as the
+ * incumbent, and the search carries on until no node with an estimate below the incumbent's length is left anywhere.
+ * The heuristic never overestimates, so no such node could lead to a shorter solution and the incumbent is optimal.
+ *
+ * To detect that, a shared counter holds the number of nodes that are queued or in an inbox. A worker only takes a
+ * node off the counter after its successors have been added, so the counter reaches 0 exactly when all work is done.
+ *
+ * If a SearchBudget is set, each worker checks it when SearchBudget.isDue() says so for its estimated total. The states
+ * are spread evenly between workers, so a worker estimates the totals as its own counts times the number of threads.
+ * The first worker to find the budget exhausted makes every worker stop.
+ */
+public class HDAStarSearch {
+    // Reason a search stops once a worker's arena is too large for global handles
+    public static final String OUT_OF_HANDLES = "Out of node handles!";
+    // Idle rounds a worker yields for before it starts parking
+    private static final int IDLE_SPINS = 64;
+    // Time an idle worker parks for before checking its inbox again
+    private static final long IDLE_PARK_NANOS = 100000;
+
+    private final PackedBoard board;
+    private final Heuristic heuristic;
+    private final int threads;
+    private final int maxArenaSize; // Largest arena whose local handles give global handles that fit in an int
+
+    private final Queue<Message>[] inboxes;
+    private final NodeArena[] arenas;
+    private final AtomicLong pending = new AtomicLong();
+    private final long[] nodesExpanded;
+    private final long[] nodesGenerated;
+    private final long[] peakOpenSizes;
+    private final long[] closedSizes;
+    private final long[] busyNanos;
+
+    private SearchBudget budget;
+    private volatile String stopReason;
+    private volatile int bestLength;
+    private int bestNode;
+    private long elapsedNanos;
+
+    /**
+     * Constructs a search for the given board size. The heuristic must already be loaded.
+     *
+     * @param board - The board size
+     * @param heuristic - Heuristic for the board size
+     * @param threads - Number of worker threads
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HDAStarSearch (PackedBoard board, Heuristic heuristic, int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("At least one thread is needed");
+        this.board = board;
+        this.heuristic = heuristic;
+        this.threads = threads;
+        this.maxArenaSize = Integer.MAX_VALUE / threads;
+
+        inboxes = new Queue[threads];
+        arenas = new NodeArena[threads];
+        for (int i = 0; i < threads; i++) {
+            inboxes[i] = new ConcurrentLinkedQueue<>();
+            arenas[i] = new NodeArena();
+        }
+        nodesExpanded = new long[threads];
+        nodesGenerated = new long[threads];
+        peakOpenSizes = new long[threads];
+        closedSizes = new long[threads];
+        busyNanos = new long[threads];
+    }
+
+    /**
+     * Sets the budget checked by later searches.
+     *
+     * @param budget - The budget, or null for no limits (default)
+     */
+    public void setBudget (SearchBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Runs the search from a solvable state, blocking until it has finished.
+     *
+     * @param state - The packed start state, which must be solvable
+     * @param space - The cell index of the space in the start state
+     * @return The directions the space moves in on an optimal solution, or null if none was found or the budget ran
+     * out first (see getStopReason()).
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the workers.
+     */
+    public byte[] search (long state, int space) throws InterruptedException {
+        bestLength = Integer.MAX_VALUE;
+        bestNode = NodeArena.NONE;
+        stopReason = null;
+        for (NodeArena arena : arenas) arena.clear();
+        for (Queue<Message> inbox : inboxes) inbox.clear();
+
+        long start = System.nanoTime();
+        pending.set(1);
+        inboxes[owner(state)].add(new Message(state, NodeArena.NONE, space, 0, 0, heuristic.evaluate(state)));
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int id = i;
+            workers[i] = new Thread(() -> work(id), "hda-worker-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) worker.join();
+        elapsedNanos = System.nanoTime() - start;
+
+        if (bestNode == NodeArena.NONE || stopReason != null) return null;
+        byte[] moves = new byte[bestLength];
+        for (int node = bestNode; ; ) {
+            NodeArena arena = arenas[node % threads];
+            int local = node / threads;
+            if (arena.parent(local) == NodeArena.NONE) break;
+            moves[arena.depth(local) - 1] = (byte) arena.move(local);
+            node = arena.parent(local);
+        }
+        return moves;
+    }
+
+    /**
+     * @param state - The packed state
+     * @return The index of the worker owning the state.
+     */
+    private int owner (long state) {
+        // The high bits of the hash are used, as StateTable picks slots with the low bits
+        return (int) ((PackedBoard.hash(state) >>> 32) % threads);
+    }
+
+    /**
+     * Main loop of a worker thread - alternates between draining its inbox and expanding its best node, until no
+     * work is left anywhere.
+     *
+     * @param id - The index of the worker
+     */
+    private void work (int id) {
+        Queue<Message> inbox = inboxes[id];
+        NodeArena nodes = arenas[id];
+        StateTable seen = new StateTable();
+        BucketQueue pq = new BucketQueue();
+        long expanded = 0, generated = 0, peakOpenSize = 0, busy = 0;
+        int idleRounds = 0;
+
+        while (pending.get() > 0 && stopReason == null) {
+            long start = System.nanoTime();
+
+            // Queue received nodes, dropping ones already reached with as few moves or that cannot improve on the
+            // incumbent
+            for (Message received = inbox.poll(); received != null; received = inbox.poll()) {
+                int seenDepth = seen.get(received.state);
+                if (received.depth + received.heuristic >= bestLength
+                        || (seenDepth != StateTable.NOT_FOUND && seenDepth <= received.depth)) {
+                    pending.decrementAndGet();
+                    continue;
+                }
+                if (outOfHandles(nodes)) break;
+                seen.put(received.state, received.depth);
+                int node = nodes.add(received.state, received.parent, received.space, received.move, received.depth,
+                        received.heuristic);
+                pq.add(node, received.depth + received.heuristic, received.depth);
+            }
+
+            if (stopReason != null) break;
+
+            if (pq.size() > peakOpenSize) peakOpenSize = pq.size();
+            int currNode = pq.poll();
+            if (currNode == BucketQueue.EMPTY) {
+                if (idleRounds++ < IDLE_SPINS) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            idleRounds = 0;
+            long state = nodes.state(currNode);
+            int space = nodes.space(currNode);
+            int depth = nodes.depth(currNode);
+            int currHeuristic = nodes.heuristic(currNode);
+            int handle = currNode * threads + id;
+
+            // Every other queued node has an estimate at least as large, so none of them can improve on the
+            // incumbent either
+            if (depth + currHeuristic >= bestLength) {
+                pending.addAndGet(-1 - pq.size());
+                pq.clear();
+                continue;
+            }
+            // Skip nodes whose state has been queued again at a lower depth since
+            if (seen.get(state) < depth) {
+                pending.decrementAndGet();
+                continue;
+            }
+            expanded++;
+            if (budget != null && budget.isDue(expanded * threads)) {
+                String reason = budget.check(expanded * threads,
+                        (nodes.getMemoryUsage() + seen.getMemoryUsage()) * threads);
+                if (reason != null) {
+                    stopReason = reason;
+                    break;
+                }
+            }
+
+            if (board.isGoal(state)) {
+                offerSolution(handle, depth);
+                pending.decrementAndGet();
+                busy += System.nanoTime() - start;
+                continue;
+            }
+
+            int added = 0;
+            int lastDirection = nodes.parent(currNode) != NodeArena.NONE ? nodes.move(currNode) : -1;
+            for (int direction = PackedBoard.UP; direction <= PackedBoard.RIGHT; direction++) {
+                // Skip the move back to the parent's state
+                if ((direction ^ 1) == lastDirection) continue;
+                int from = board.neighbour(space, direction);
+                if (from < 0) continue;
+
+                long next = PackedBoard.slide(state, space, from);
+                int value = heuristic.update(currHeuristic, state, space, direction, next);
+                generated++;
+                if (depth + 1 + value >= bestLength) continue;
+
+                int nextOwner = owner(next);
+                if (nextOwner != id) {
+                    pending.incrementAndGet();
+                    inboxes[nextOwner].add(new Message(next, handle, from, direction, depth + 1, value));
+                    continue;
+                }
+
+                int seenDepth = seen.get(next);
+                if (seenDepth != StateTable.NOT_FOUND && seenDepth <= depth + 1) continue;
+                if (outOfHandles(nodes)) break;
+                seen.put(next, depth + 1);
+                int p = nodes.add(next, handle, from, direction, depth + 1, value);
+                pq.add(p, depth + 1 + value, depth + 1);
+                added++;
+            }
+            // Successors are counted before the expanded node is removed, so the counter cannot reach 0 early
+            pending.addAndGet(added - 1);
+            busy += System.nanoTime() - start;
+        }
+
+        nodesExpanded[id] = expanded;
+        nodesGenerated[id] = generated;
+        peakOpenSizes[id] = peakOpenSize;
+        closedSizes[id] = seen.size();
+        busyNanos[id] = busy;
+    }
+
+    /**
+     * Checks whether another node fits in a worker's arena, stopping every worker if not.
+     *
+     * @param nodes - The worker's arena
+     * @return Whether the arena is full, in which case stopReason is set to OUT_OF_HANDLES.
+     */
+    private boolean outOfHandles (NodeArena nodes) {
+        if (nodes.size() < maxArenaSize) return false;
+        stopReason = OUT_OF_HANDLES;
+        return true;
+    }
+
+    /**
+     * Replaces the incumbent solution if the given goal node is shorter.
+     *
+     * @param goal - The global handle of a goal node
+     * @param length - The depth of the goal node
+     */
+    private synchronized void offerSolution (int goal, int length) {
+        if (length < bestLength) {
+            bestNode = goal;
+            bestLength = length;
+        }
+    }
+
+    /**
+     * @return Why the last search stopped before finishing, or null if it finished.
+     */
+    public String getStopReason () {
+        return stopReason;
+    }
+
+    /**
+     * @return The number of nodes expanded by each worker in the last search.
+     */
+    public long[] getNodesExpanded () {
+        return nodesExpanded.clone();
+    }
+
+    /**
+     * @return The number of nodes generated by all workers in the last search.
+     */
+    public long getNodesGenerated () {
+        return sum(nodesGenerated);
+    }
+
+    /**
+     * @return The sum of each worker's largest open list in the last search (an upper bound on the largest number
+     * of queued nodes at once).
+     */
+    public long getPeakOpenSize () {
+        return sum(peakOpenSizes);
+    }
+
+    /**
+     * @return The number of states recorded by all workers in the last search.
+     */
+    public long getPeakClosedSize () {
+        return sum(closedSizes);
+    }
+
+    /**
+     * @param values - Values to be added
+     * @return The sum of the values.
+     */
+    private static long sum (long[] values) {
+        long total = 0;
+        for (long value : values) total += value;
+        return total;
+    }
+
+    /**
+     * @return The wall-clock time taken by the last search, in nanoseconds.
+     */
+    public long getElapsedNanos () {
+        return elapsedNanos;
+    }
+
+    /**
+     * Estimates the speedup of the last search over a single thread, as the total time the workers spent on nodes
+     * divided by the wall-clock time. This does not account for the extra nodes a parallel search expands.
+     *
+     * @return The estimated speedup.
+     */
+    public double getSpeedup () {
+        long busy = sum(busyNanos);
+        return elapsedNanos == 0 ? 1 : (double) busy / elapsedNanos;
+    }
+
+    /**
+     * A node sent to the worker owning its state, which adds it to its own arena if it is accepted.
+     */
+    private static class Message {
+        final long state;
+        final int parent; // Global handle
+        final int space;
+        final int move;
+        final int depth;
+        final int heuristic;
+
+        Message (long state, int parent, int space, int move, int depth, int heuristic) {
+            this.state = state;
+            this.parent = parent;
+            this.space = space;
+            this.move = move;
+            this.depth = depth;
+            this.heuristic = heuristic;
+        }
+    }
+}
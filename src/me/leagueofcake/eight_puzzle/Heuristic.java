@@ -0,0 +1,69 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.io.IOException;
+
+/**
+ * Heuristic interface - an admissible estimate of the number of moves from a packed state (see PackedBoard) to the
+ * goal state, for the searches in Solver, IDAStarSearch, HDAStarSearch and BatchSolver.
+ *
+ * Searches compute the value of the start state with evaluate(), and the value of each successor with update(),
+ * which implementations override to adjust the parent's value for the one number that moved instead of rescanning
+ * the board. Implementations must be thread-safe once loaded, as parallel searches share one instance.
+ */
+public interface Heuristic {
+    /**
+     * @return The board the heuristic is built for.
+     */
+    PackedBoard getBoard ();
+
+    /**
+     * Makes any tables the heuristic needs available. Called by the solvers before searching, and does nothing if
+     * the tables have already been loaded.
+     *
+     * @throws IOException If a table could not be read or written.
+     */
+    default void load () throws IOException {
+    }
+
+    /**
+     * Computes the heuristic value of a state from scratch.
+     *
+     * @param state - The packed state
+     * @return The estimated number of moves to the goal state, which is never more than the real number.
+     */
+    int evaluate (long state);
+
+    /**
+     * Computes the heuristic value of a successor state from the value of its parent state.
+     *
+     * @param value - The heuristic value of the parent state
+     * @param state - The packed parent state
+     * @param space - The cell index of the space in the parent state
+     * @param direction - The direction the space moves in (PackedBoard.UP, DOWN, LEFT or RIGHT)
+     * @param next - The packed successor state
+     * @return The heuristic value of the successor state.
+     */
+    default int update (int value, long state, int space, int direction, long next) {
+        return evaluate(next);
+    }
+
+    /**
+     * Creates one of the table-free heuristics by name, as typed in the CLI and BatchSolver.
+     *
+     * @param name - "manhattan", "lc" (Manhattan distance with linear conflicts) or "wd" (walking distance)
+     * @param board - The board size
+     * @return The heuristic.
+     */
+    static Heuristic of (String name, PackedBoard board) {
+        switch (name) {
+            case "manhattan":
+                return new ManhattanHeuristic(board);
+            case "lc":
+                return new LinearConflictHeuristic(board);
+            case "wd":
+                return new WalkingDistanceHeuristic(board);
+            default:
+                throw new IllegalArgumentException("Unknown heuristic " + name);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.util.Arrays;
+
+/**
+ * IDAStarSearch class - an IDA* search (iterative deepening on depth + heuristic) which can be reused for many
+ * puzzles of the same size.
+ *
+ * The search keeps only the current state and the moves leading to it, modifying the state in place and undoing each
+ * move when backtracking, so memory use is proportional to the solution length. The move buffer (and the array of
+ * tiles for large boards) is kept between searches, so solving many puzzles with one instance allocates almost
+ * nothing apart from the returned moves. Instances are not thread-safe - use one per thread.
+ *
+ * Boards of up to 16 cells are searched as packed longs (see PackedBoard), using the given heuristic. Larger boards
+ * are searched on an array of tiles with the Manhattan distance.
+ *
+ * If a SearchBudget is set, it is checked whenever SearchBudget.isDue() says so, and a search that runs out of
+ * budget unwinds at once and returns null.
+ */
+public class IDAStarSearch {
+    // Result of an iteration that reached the goal
+    private static final int FOUND = -1;
+    // Result of an iteration stopped by the budget
+    private static final int ABORTED = -2;
+
+    private final BoardGeometry geometry;
+    private final PackedBoard packedBoard;
+    private final Heuristic evaluator;
+    private SearchBudget budget;
+
+    // State of the current search, which is modified in place and undone when backtracking
+    private long state;
+    private byte[] tiles; // Used instead of state for boards too large to pack
+    private int space;
+    private int heuristic;
+    private byte[] moves = new byte[64];
+    private int solutionLength;
+    private long nodesExpanded;
+    private long nodesGenerated;
+    private String stopReason;
+
+    /**
+     * Constructs a search for the given board size. The heuristic must already be loaded, if given.
+     *
+     * @param geometry - The board size
+     * @param heuristic - Heuristic for the board size, or null to use the Manhattan distance
+     */
+    public IDAStarSearch (BoardGeometry geometry, Heuristic heuristic) {
+        this.geometry = geometry;
+        this.packedBoard = geometry instanceof PackedBoard ? (PackedBoard) geometry : null;
+        if (heuristic != null && packedBoard == null) {
+            throw new IllegalArgumentException(String.format("Boards larger than %d cells only support the Manhattan "
+                    + "distance", PackedBoard.MAX_CELLS));
+        }
+        this.evaluator = heuristic != null || packedBoard == null ? heuristic : new ManhattanHeuristic(packedBoard);
+        if (packedBoard == null) tiles = new byte[geometry.cells];
+    }
+
+    /**
+     * Sets the budget checked by later searches.
+     *
+     * @param budget - The budget, or null for no limits (default)
+     */
+    public void setBudget (SearchBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Finds an optimal solution for a puzzle.
+     *
+     * @param puzzle - A solvable puzzle of this search's board size
+     * @return The directions the space moves in (BoardGeometry.UP, DOWN, LEFT or RIGHT), one per move, or null if
+     * the budget ran out first (see getStopReason()).
+     */
+    public byte[] search (EightPuzzle puzzle) {
+        nodesExpanded = 0;
+        nodesGenerated = 0;
+        stopReason = null;
+        int bound, result;
+
+        if (packedBoard != null) {
+            state = packedBoard.pack(puzzle);
+            space = packedBoard.spaceIndex(state);
+            heuristic = evaluator.evaluate(state);
+            bound = heuristic;
+            do {
+                ensureCapacity(bound);
+                result = searchPacked(0, bound, -1);
+                if (result == ABORTED) return null;
+                bound = result;
+            } while (result != FOUND);
+        } else {
+            for (int cell = 0; cell < geometry.cells; cell++) {
+                tiles[cell] = (byte) puzzle.getTile(cell / geometry.width, cell % geometry.width);
+                if (tiles[cell] == 0) space = cell;
+            }
+            heuristic = puzzle.heuristicManhattan();
+            bound = heuristic;
+            do {
+                ensureCapacity(bound);
+                result = searchTiles(0, bound, -1);
+                if (result == ABORTED) return null;
+                bound = result;
+            } while (result != FOUND);
+        }
+
+        return Arrays.copyOf(moves, solutionLength);
+    }
+
+    /**
+     * @return The number of nodes expanded by the last search, over all iterations.
+     */
+    public long getNodesExpanded () {
+        return nodesExpanded;
+    }
+
+    /**
+     * @return The number of nodes generated by the last search, over all iterations.
+     */
+    public long getNodesGenerated () {
+        return nodesGenerated;
+    }
+
+    /**
+     * @return Why the last search stopped without a solution, or null if it finished.
+     */
+    public String getStopReason () {
+        return stopReason;
+    }
+
+    /**
+     * Helper function checking the budget, when SearchBudget.isDue() says so.
+     *
+     * @return Whether the search must stop, in which case the reason is left in stopReason.
+     */
+    private boolean outOfBudget () {
+        if (budget == null || !budget.isDue(nodesExpanded)) return false;
+        stopReason = budget.check(nodesExpanded, moves.length);
+        return stopReason != null;
+    }
+
+    /**
+     * Helper function to grow the move buffer so that a path of the given length fits.
+     *
+     * @param length - The longest path the next iteration can reach
+     */
+    private void ensureCapacity (int length) {
+        if (length > moves.length) moves = new byte[Math.max(length, moves.length << 1)];
+    }
+
+    /**
+     * One iteration of IDA* on the packed state - a depth-first search that stops at nodes whose estimate
+     * (depth + heuristic) exceeds the bound.
+     *
+     * The move that would undo the previous move is skipped, as it can only lead back to an already visited state.
+     *
+     * @param depth - the number of moves made to reach the current state
+     * @param bound - the largest estimate that may be expanded in this iteration
+     * @param lastDirection - the direction of the previous move, or -1 at the root
+     * @return FOUND if the goal was reached (leaving the moves in moves), ABORTED if the budget ran out, or the
+     * smallest estimate that exceeded the bound otherwise.
+     */
+    private int searchPacked (int depth, int bound, int lastDirection) {
+        int estimate = depth + heuristic;
+        if (estimate > bound) return estimate;
+        if (packedBoard.isGoal(state)) {
+            solutionLength = depth;
+            return FOUND;
+        }
+        nodesExpanded++;
+        if (outOfBudget()) return ABORTED;
+
+        int nextBound = Integer.MAX_VALUE;
+        int currSpace = space;
+        int currHeuristic = heuristic;
+        for (int direction = PackedBoard.UP; direction <= PackedBoard.RIGHT; direction++) {
+            if ((direction ^ 1) == lastDirection) continue;
+            int from = packedBoard.neighbour(currSpace, direction);
+            if (from < 0) continue;
+
+            long currState = state;
+            state = PackedBoard.slide(state, currSpace, from);
+            space = from;
+            heuristic = evaluator.update(currHeuristic, currState, currSpace, direction, state);
+            moves[depth] = (byte) direction;
+            nodesGenerated++;
+
+            int result = searchPacked(depth + 1, bound, direction);
+            if (result == FOUND || result == ABORTED) return result;
+            if (result < nextBound) nextBound = result;
+
+            // Undo the move
+            state = currState;
+            space = currSpace;
+            heuristic = currHeuristic;
+        }
+        return nextBound;
+    }
+
+    /**
+     * One iteration of IDA* on the array of tiles - otherwise the same as searchPacked(). Only the solved board has
+     * a Manhattan distance of 0, so the goal test needs no scan of the board.
+     *
+     * @param depth - the number of moves made to reach the current state
+     * @param bound - the largest estimate that may be expanded in this iteration
+     * @param lastDirection - the direction of the previous move, or -1 at the root
+     * @return FOUND if the goal was reached (leaving the moves in moves), ABORTED if the budget ran out, or the
+     * smallest estimate that exceeded the bound otherwise.
+     */
+    private int searchTiles (int depth, int bound, int lastDirection) {
+        int estimate = depth + heuristic;
+        if (estimate > bound) return estimate;
+        if (heuristic == 0) {
+            solutionLength = depth;
+            return FOUND;
+        }
+        nodesExpanded++;
+        if (outOfBudget()) return ABORTED;
+
+        int nextBound = Integer.MAX_VALUE;
+        int currSpace = space;
+        int currHeuristic = heuristic;
+        for (int direction = BoardGeometry.UP; direction <= BoardGeometry.RIGHT; direction++) {
+            if ((direction ^ 1) == lastDirection) continue;
+            int from = geometry.neighbour(currSpace, direction);
+            if (from < 0) continue;
+
+            byte num = tiles[from];
+            tiles[currSpace] = num;
+            tiles[from] = 0;
+            space = from;
+            heuristic = currHeuristic + geometry.manhattanDelta(num, currSpace, direction);
+            moves[depth] = (byte) direction;
+            nodesGenerated++;
+
+            int result = searchTiles(depth + 1, bound, direction);
+            if (result == FOUND || result == ABORTED) return result;
+            if (result < nextBound) nextBound = result;
+
+            // Undo the move
+            tiles[from] = num;
+            tiles[currSpace] = 0;
+            space = currSpace;
+            heuristic = currHeuristic;
+        }
+        return nextBound;
+    }
+}
@@ -0,0 +1,118 @@
+package me.leagueofcake.eight_puzzle;
+
+/**
+ * LinearConflictHeuristic class - the Manhattan distance plus a penalty for numbers in linear conflict.
+ *
+ * Two numbers are in linear conflict when both are in their goal row (or column) but in the wrong order, so one of
+ * them must leave the line and come back, which takes two moves the Manhattan distance does not count. For each line,
+ * the fewest numbers that must leave it is the number of numbers in their goal line minus the longest run of them
+ * already in goal order (longest increasing subsequence), and the penalty is two moves for each. Rows and columns
+ * are counted separately, so the estimate never overestimates.
+ *
+ * A move changes the Manhattan distance of one number and only changes the conflicts of the two lines that number
+ * leaves and enters (columns for a horizontal move, rows for a vertical one), so successors are updated by
+ * recounting just those two lines.
+ */
+public class LinearConflictHeuristic implements Heuristic {
+    private final PackedBoard board;
+    private final int[] goalRows;
+    private final int[] goalCols;
+
+    /**
+     * Constructs the heuristic for the given board size.
+     *
+     * @param board - The board size
+     */
+    public LinearConflictHeuristic (PackedBoard board) {
+        this.board = board;
+        goalRows = new int[board.cells];
+        goalCols = new int[board.cells];
+        for (int num = 1; num < board.cells; num++) {
+            goalRows[num] = (num - 1) / board.width;
+            goalCols[num] = (num - 1) % board.width;
+        }
+    }
+
+    @Override
+    public PackedBoard getBoard () {
+        return board;
+    }
+
+    @Override
+    public int evaluate (long state) {
+        int total = board.manhattan(state);
+        for (int row = 0; row < board.height; row++) total += rowPenalty(state, row);
+        for (int col = 0; col < board.width; col++) total += colPenalty(state, col);
+        return total;
+    }
+
+    @Override
+    public int update (int value, long state, int space, int direction, long next) {
+        int from = board.neighbour(space, direction);
+        int num = PackedBoard.tile(state, from);
+        value += board.manhattanDelta(num, space, direction);
+
+        if (direction == PackedBoard.UP || direction == PackedBoard.DOWN) {
+            int spaceRow = space / board.width, fromRow = from / board.width;
+            return value - rowPenalty(state, spaceRow) - rowPenalty(state, fromRow)
+                    + rowPenalty(next, spaceRow) + rowPenalty(next, fromRow);
+        }
+        int spaceCol = space % board.width, fromCol = from % board.width;
+        return value - colPenalty(state, spaceCol) - colPenalty(state, fromCol)
+                + colPenalty(next, spaceCol) + colPenalty(next, fromCol);
+    }
+
+    /**
+     * @param state - The packed state
+     * @param row - Index of the row
+     * @return The linear conflict penalty of the row.
+     */
+    private int rowPenalty (long state, int row) {
+        long goals = 0;
+        int count = 0;
+        for (int cell = row * board.width; cell < (row + 1) * board.width; cell++) {
+            int num = PackedBoard.tile(state, cell);
+            if (num != 0 && goalRows[num] == row) goals |= (long) goalCols[num] << (count++ << 2);
+        }
+        return penalty(goals, count);
+    }
+
+    /**
+     * @param state - The packed state
+     * @param col - Index of the column
+     * @return The linear conflict penalty of the column.
+     */
+    private int colPenalty (long state, int col) {
+        long goals = 0;
+        int count = 0;
+        for (int cell = col; cell < board.cells; cell += board.width) {
+            int num = PackedBoard.tile(state, cell);
+            if (num != 0 && goalCols[num] == col) goals |= (long) goalRows[num] << (count++ << 2);
+        }
+        return penalty(goals, count);
+    }
+
+    /**
+     * Helper function computing the penalty of a line from the goal positions of its numbers that are in their goal
+     * line - two moves for each number outside the longest increasing subsequence of the positions.
+     *
+     * @param goals - Goal position of each number along the line, in line order, 4 bits each
+     * @param count - Number of positions
+     * @return The penalty of the line.
+     */
+    private static int penalty (long goals, int count) {
+        if (count < 2) return 0;
+
+        // Patience sorting - tails holds the smallest last position of an increasing run of each length, 4 bits each
+        long tails = 0;
+        int longest = 0;
+        for (int i = 0; i < count; i++) {
+            long goal = (goals >>> (i << 2)) & 0xF;
+            int length = 0;
+            while (length < longest && ((tails >>> (length << 2)) & 0xF) < goal) length++;
+            tails = (tails & ~(0xFL << (length << 2))) | (goal << (length << 2));
+            if (length == longest) longest++;
+        }
+        return (count - longest) << 1;
+    }
+}
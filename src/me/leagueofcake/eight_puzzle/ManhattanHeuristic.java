@@ -0,0 +1,36 @@
+package me.leagueofcake.eight_puzzle;
+
+/**
+ * ManhattanHeuristic class - the total Manhattan distance of each number to its goal cell, the default heuristic.
+ *
+ * Each move changes the distance of the number that slides by exactly one, so successors are updated with a single
+ * table lookup (PackedBoard.manhattanDelta).
+ */
+public class ManhattanHeuristic implements Heuristic {
+    private final PackedBoard board;
+
+    /**
+     * Constructs the heuristic for the given board size.
+     *
+     * @param board - The board size
+     */
+    public ManhattanHeuristic (PackedBoard board) {
+        this.board = board;
+    }
+
+    @Override
+    public PackedBoard getBoard () {
+        return board;
+    }
+
+    @Override
+    public int evaluate (long state) {
+        return board.manhattan(state);
+    }
+
+    @Override
+    public int update (int value, long state, int space, int direction, long next) {
+        int num = PackedBoard.tile(state, board.neighbour(space, direction));
+        return value + board.manhattanDelta(num, space, direction);
+    }
+}
@@ -0,0 +1,193 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.util.Arrays;
+
+/**
+ * NodeArena class - compact storage for the nodes of a search tree.
+ *
+ * Nodes are referred to by int handles (their index in the arena) rather than objects. Each node stores its packed
+ * state, the handle of its parent, its depth and heuristic value, and the cell of the space together with the
+ * direction of the move that led to it (2 bits) - 18 bytes per node in parallel primitive arrays, with no object
+ * headers or references for the garbage collector to trace. The moves of a path are recovered by following the
+ * parent handles back to the root.
+ *
+ * The arrays are on the Java heap. For searches too large for that, OffHeapNodeArena keeps the same nodes in direct
+ * memory with a size limit.
+ */
+public class NodeArena {
+    // Parent handle of a root node
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] states;
+    private int[] parents;
+    private int[] depths;
+    private byte[] heuristics;
+    private byte[] spaceMoves; // (space << 2) | move
+
+    private int size;
+
+    /**
+     * Constructs an empty NodeArena.
+     */
+    public NodeArena () {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty NodeArena with room for the given number of nodes before growing.
+     *
+     * @param capacity - Number of nodes to allocate room for (0 for subclasses storing nodes elsewhere)
+     */
+    protected NodeArena (int capacity) {
+        states = new long[capacity];
+        parents = new int[capacity];
+        depths = new int[capacity];
+        heuristics = new byte[capacity];
+        spaceMoves = new byte[capacity];
+    }
+
+    /**
+     * Adds a root node, with a depth of 0 and no parent.
+     *
+     * @param state - The packed state
+     * @param space - The cell index of the space in the state
+     * @param heuristic - The heuristic value of the state (0 - 255)
+     * @return The handle of the new node, or NONE if the arena is full.
+     */
+    public int addRoot (long state, int space, int heuristic) {
+        return add(state, NONE, space, 0, 0, heuristic);
+    }
+
+    /**
+     * Adds a child of an existing node, one move deeper.
+     *
+     * @param parent - The handle of the parent node
+     * @param state - The packed state
+     * @param space - The cell index of the space in the state
+     * @param move - The direction the space moved in from the parent's state
+     * @param heuristic - The heuristic value of the state (0 - 255)
+     * @return The handle of the new node, or NONE if the arena is full.
+     */
+    public int addChild (int parent, long state, int space, int move, int heuristic) {
+        return add(state, parent, space, move, depth(parent) + 1, heuristic);
+    }
+
+    /**
+     * Adds a node.
+     *
+     * @param state - The packed state
+     * @param parent - The handle of the parent node, or NONE
+     * @param space - The cell index of the space in the state
+     * @param move - The direction the space moved in from the parent's state (ignored for root nodes)
+     * @param depth - The number of moves from the root
+     * @param heuristic - The heuristic value of the state (0 - 255)
+     * @return The handle of the new node, or NONE if the arena is full (never for this class, which grows until the
+     * heap runs out).
+     */
+    public int add (long state, int parent, int space, int move, int depth, int heuristic) {
+        if (size == states.length) grow();
+        states[size] = state;
+        parents[size] = parent;
+        depths[size] = depth;
+        heuristics[size] = (byte) heuristic;
+        spaceMoves[size] = (byte) ((space << 2) | move);
+        return size++;
+    }
+
+    /**
+     * Helper function to grow the arrays by half.
+     */
+    private void grow () {
+        int capacity = Math.max(INITIAL_CAPACITY, states.length + (states.length >> 1));
+        states = Arrays.copyOf(states, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        depths = Arrays.copyOf(depths, capacity);
+        heuristics = Arrays.copyOf(heuristics, capacity);
+        spaceMoves = Arrays.copyOf(spaceMoves, capacity);
+    }
+
+    /**
+     * @param node - A node handle
+     * @return The packed state of the node.
+     */
+    public long state (int node) {
+        return states[node];
+    }
+
+    /**
+     * @param node - A node handle
+     * @return The handle of the node's parent, or NONE for a root node.
+     */
+    public int parent (int node) {
+        return parents[node];
+    }
+
+    /**
+     * @param node - A node handle
+     * @return The number of moves from the root to the node.
+     */
+    public int depth (int node) {
+        return depths[node];
+    }
+
+    /**
+     * @param node - A node handle
+     * @return The heuristic value of the node's state.
+     */
+    public int heuristic (int node) {
+        return heuristics[node] & 0xFF;
+    }
+
+    /**
+     * @param node - A node handle
+     * @return The cell index of the space in the node's state.
+     */
+    public int space (int node) {
+        return (spaceMoves[node] & 0xFF) >>> 2;
+    }
+
+    /**
+     * @param node - A node handle
+     * @return The direction the space moved in to reach the node from its parent.
+     */
+    public int move (int node) {
+        return spaceMoves[node] & 3;
+    }
+
+    /**
+     * Recovers the moves from the root to a node by following its parents.
+     *
+     * @param node - A node handle
+     * @return The directions the space moves in, one per move.
+     */
+    public byte[] moves (int node) {
+        byte[] moves = new byte[depth(node)];
+        for (int curr = node; parent(curr) != NONE; curr = parent(curr)) {
+            moves[depth(curr) - 1] = (byte) move(curr);
+        }
+        return moves;
+    }
+
+    /**
+     * @return The number of nodes in the arena.
+     */
+    public int size () {
+        return size;
+    }
+
+    /**
+     * @return The number of bytes allocated for nodes.
+     */
+    public long getMemoryUsage () {
+        return (long) states.length * (Long.BYTES + Integer.BYTES * 2 + 2);
+    }
+
+    /**
+     * Removes every node, keeping the allocated arrays so the arena can be reused.
+     */
+    public void clear () {
+        size = 0;
+    }
+}
@@ -0,0 +1,150 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * OffHeapNodeArena class - a NodeArena which keeps its nodes outside the Java heap, in direct ByteBuffer slabs.
+ *
+ * Each node is a 16-byte record - packed state (8 bytes), parent handle (4), depth (2), heuristic (1), and the space
+ * cell and move (1). Slabs of records are allocated as the arena grows, so the heap only holds the list of slabs and
+ * stays the same size however many nodes are added, and the garbage collector has nothing to trace or copy.
+ *
+ * The total size of the slabs is capped. Slabs hold up to 2^20 records (16 MiB), but at most an eighth of the cap, so
+ * small caps are not rounded up to a whole 16 MiB slab and the memory allocated stays close to the memory used. Once a
+ * new slab would go over the cap, add() returns NONE and the search must give up, rather than the JVM running out of
+ * memory. Slabs are kept by clear() for reuse, and the memory is returned to the OS when the arena is garbage
+ * collected.
+ *
+ * Only the nodes are kept here - a search's tables and open list stay on the heap and grow with it too, so Solver
+ * counts them against the same limit.
+ */
+public class OffHeapNodeArena extends NodeArena {
+    // Bytes per node record, and the log2 of the most and fewest nodes per slab (16 MiB and 64 KiB slabs)
+    private static final int NODE_BYTES = 16;
+    private static final int MAX_SLAB_SHIFT = 20;
+    private static final int MIN_SLAB_SHIFT = 12;
+    // Smallest cap, one of the smallest slabs
+    public static final long MIN_BYTES = (long) NODE_BYTES << MIN_SLAB_SHIFT;
+
+    private static final int STATE_OFFSET = 0;
+    private static final int PARENT_OFFSET = 8;
+    private static final int DEPTH_OFFSET = 12;
+    private static final int HEURISTIC_OFFSET = 14;
+    private static final int SPACE_MOVE_OFFSET = 15;
+
+    private final long maxBytes;
+    private final int slabShift;
+    private final int slabMask;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private int size;
+
+    /**
+     * Constructs an empty OffHeapNodeArena. No memory is allocated until nodes are added.
+     *
+     * @param maxBytes - Largest number of bytes of direct memory to allocate (rounded down to whole slabs), at least
+     *                   MIN_BYTES
+     * @throws IllegalArgumentException If the cap is smaller than MIN_BYTES.
+     */
+    public OffHeapNodeArena (long maxBytes) {
+        super(0);
+        if (maxBytes < MIN_BYTES) {
+            throw new IllegalArgumentException(String.format("The off-heap limit must be at least %d KB",
+                    MIN_BYTES >> 10));
+        }
+        this.maxBytes = maxBytes;
+        // Largest slab that is at most an eighth of the cap, within the bounds
+        int shift = 63 - Long.numberOfLeadingZeros(maxBytes / NODE_BYTES >>> 3);
+        this.slabShift = Math.max(MIN_SLAB_SHIFT, Math.min(MAX_SLAB_SHIFT, shift));
+        this.slabMask = (1 << slabShift) - 1;
+    }
+
+    @Override
+    public int add (long state, int parent, int space, int move, int depth, int heuristic) {
+        if (depth > 0xFFFF) throw new IllegalArgumentException("Depths above 65535 are not supported");
+        if ((size >>> slabShift) == slabs.size()) {
+            if ((long) (slabs.size() + 1) * NODE_BYTES << slabShift > maxBytes || size == Integer.MAX_VALUE) {
+                return NONE;
+            }
+            slabs.add(ByteBuffer.allocateDirect(NODE_BYTES << slabShift).order(ByteOrder.nativeOrder()));
+        }
+
+        ByteBuffer slab = slabs.get(size >>> slabShift);
+        int offset = (size & slabMask) * NODE_BYTES;
+        slab.putLong(offset + STATE_OFFSET, state);
+        slab.putInt(offset + PARENT_OFFSET, parent);
+        slab.putShort(offset + DEPTH_OFFSET, (short) depth);
+        slab.put(offset + HEURISTIC_OFFSET, (byte) heuristic);
+        slab.put(offset + SPACE_MOVE_OFFSET, (byte) ((space << 2) | move));
+        return size++;
+    }
+
+    /**
+     * @param node - A node handle
+     * @return The slab holding the node.
+     */
+    private ByteBuffer slab (int node) {
+        return slabs.get(node >>> slabShift);
+    }
+
+    /**
+     * @param node - A node handle
+     * @return The offset of the node's record in its slab.
+     */
+    private int offset (int node) {
+        return (node & slabMask) * NODE_BYTES;
+    }
+
+    @Override
+    public long state (int node) {
+        return slab(node).getLong(offset(node) + STATE_OFFSET);
+    }
+
+    @Override
+    public int parent (int node) {
+        return slab(node).getInt(offset(node) + PARENT_OFFSET);
+    }
+
+    @Override
+    public int depth (int node) {
+        return slab(node).getShort(offset(node) + DEPTH_OFFSET) & 0xFFFF;
+    }
+
+    @Override
+    public int heuristic (int node) {
+        return slab(node).get(offset(node) + HEURISTIC_OFFSET) & 0xFF;
+    }
+
+    @Override
+    public int space (int node) {
+        return (slab(node).get(offset(node) + SPACE_MOVE_OFFSET) & 0xFF) >>> 2;
+    }
+
+    @Override
+    public int move (int node) {
+        return slab(node).get(offset(node) + SPACE_MOVE_OFFSET) & 3;
+    }
+
+    @Override
+    public int size () {
+        return size;
+    }
+
+    @Override
+    public void clear () {
+        size = 0;
+    }
+
+    /**
+     * @return The number of bytes of direct memory allocated.
+     */
+    public long getAllocatedBytes () {
+        return (long) slabs.size() * NODE_BYTES << slabShift;
+    }
+
+    @Override
+    public long getMemoryUsage () {
+        return getAllocatedBytes();
+    }
+}
@@ -0,0 +1,159 @@
+package me.leagueofcake.eight_puzzle;
+
+/**
+ * PackedBoard class providing a compact representation of n-puzzle states with up to 16 cells (up to 4x4).
+ *
+ * Each state is packed into a single long, with the number in cell i (cells numbered row by row) stored in the
+ * nibble at bits 4i - 4i+3. The index of the space (0) is tracked separately by the caller, which lets moves,
+ * equality, hashing and the Manhattan distance be computed with bit operations and without allocating.
+ *
+ * The move and distance tables are inherited from BoardGeometry. Since a move only changes the distance of the number
+ * that slides, solvers can carry the Manhattan distance along with each state and update it with manhattanDelta(),
+ * instead of rescanning the board with manhattan(). Use BoardGeometry.of() to share one instance per board size.
+ */
+public class PackedBoard extends BoardGeometry {
+    public static final int MAX_CELLS = 16;
+
+    private final long goal;
+
+    /**
+     * Constructs the tables for a board of the given size.
+     *
+     * @param width - Number of columns on the board
+     * @param height - Number of rows on the board
+     */
+    public PackedBoard (int width, int height) {
+        super(width, height);
+        if (!fits(width, height)) {
+            throw new IllegalArgumentException(String.format("A %dx%d board does not fit in a long", width, height));
+        }
+
+        // Goal state - 1 to (cells - 1) in order, followed by the space
+        long goalState = 0;
+        for (int cell = 0; cell < cells - 1; cell++) {
+            goalState |= (long) (cell + 1) << (cell << 2);
+        }
+        goal = goalState;
+    }
+
+    /**
+     * @param width - Number of columns on the board
+     * @param height - Number of rows on the board
+     * @return Whether boards of the given size can be packed into a long.
+     */
+    public static boolean fits (int width, int height) {
+        return width > 0 && height > 0 && (long) width * height <= MAX_CELLS;
+    }
+
+    /**
+     * Packs the given puzzle into a long.
+     *
+     * @param puzzle - The puzzle to pack, which must have the same size as this PackedBoard
+     * @return The packed state
+     */
+    public long pack (EightPuzzle puzzle) {
+        long state = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            state |= (long) puzzle.getTile(cell / width, cell % width) << (cell << 2);
+        }
+        return state;
+    }
+
+    /**
+     * Unpacks a packed state into a new EightPuzzle.
+     *
+     * @param state - The packed state
+     * @return The corresponding EightPuzzle
+     */
+    public EightPuzzle unpack (long state) {
+        int[][] board = new int[height][width];
+        for (int cell = 0; cell < cells; cell++) {
+            board[cell / width][cell % width] = tile(state, cell);
+        }
+        return new EightPuzzle(board);
+    }
+
+    /**
+     * @param state - The packed state
+     * @param cell - The cell index (row * width + col)
+     * @return The number in the given cell.
+     */
+    public static int tile (long state, int cell) {
+        return (int) (state >>> (cell << 2)) & 0xF;
+    }
+
+    /**
+     * Finds the space in a packed state by scanning for the zero nibble. Solvers should track the space alongside
+     * the state instead of calling this in their search loop.
+     *
+     * @param state - The packed state
+     * @return The cell index of the space (0).
+     */
+    public int spaceIndex (long state) {
+        for (int cell = 0; cell < cells; cell++) {
+            if (tile(state, cell) == 0) return cell;
+        }
+        return -1;
+    }
+
+    /**
+     * Slides the number in cell "from" into the space. The space ends up in cell "from".
+     *
+     * Since the space is stored as a zero nibble, this only needs to clear the source nibble and set the
+     * destination nibble.
+     *
+     * @param state - The packed state
+     * @param space - The cell index of the space
+     * @param from - The cell index of the number to slide, which must be adjacent to the space
+     * @return The packed state after the move
+     */
+    public static long slide (long state, int space, int from) {
+        long num = (state >>> (from << 2)) & 0xFL;
+        return (state & ~(0xFL << (from << 2))) | (num << (space << 2));
+    }
+
+    /**
+     * Heuristic function based on the Manhattan distance to the goal state.
+     *
+     * @param state - The packed state
+     * @return Total Manhattan distance of each number (excluding the space) to its goal cell.
+     */
+    public int manhattan (long state) {
+        int totalDistance = 0;
+        for (int cell = 0; cell < cells; cell++, state >>>= 4) {
+            totalDistance += distance((int) state & 0xF, cell);
+        }
+        return totalDistance;
+    }
+
+    /**
+     * @param state - The packed state
+     * @return Whether the state is the solved state.
+     */
+    public boolean isGoal (long state) {
+        return state == goal;
+    }
+
+    /**
+     * @return The packed goal state.
+     */
+    public long goal () {
+        return goal;
+    }
+
+    /**
+     * Hash function for packed states. Mixes all bits of the state so that states differing in only a few cells
+     * spread evenly over hash tables (finaliser from MurmurHash3).
+     *
+     * @param state - The packed state
+     * @return A well-distributed 64-bit hash of the state.
+     */
+    public static long hash (long state) {
+        state ^= state >>> 33;
+        state *= 0xff51afd7ed558ccdL;
+        state ^= state >>> 33;
+        state *= 0xc4ceb93fe53e94d3L;
+        state ^= state >>> 33;
+        return state;
+    }
+}
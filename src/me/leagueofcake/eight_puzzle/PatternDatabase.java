@@ -0,0 +1,293 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * PatternDatabase class - an additive pattern database heuristic for boards of up to 16 cells.
+ *
+ * The numbers on the board are split into disjoint groups (e.g. 6-6-3 for the 15-puzzle). For each group, a table
+ * stores the minimum number of moves of that group's numbers needed to bring them to their goal cells from every
+ * placement of the group, ignoring the other numbers. As each move only moves one number, the values of the groups
+ * can be added together and still never overestimate - and the sum is far closer to the real distance than the
+ * Manhattan distance.
+ *
+ * Each table is built once by a backward breadth-first search from the goal and saved as a file of one byte per
+ * placement (the placements of a group are ranked as partial permutations of the cells). Tables are only built or
+ * read when load() is first called, and are then used through memory-mapped files, so starting a JVM with existing
+ * tables costs almost nothing and the OS page cache can share them between processes.
+ */
+public class PatternDatabase implements Heuristic {
+    // Partition of the 15-puzzle from Korf & Felner's "Disjoint pattern database heuristics"
+    private static final int[][] PARTITION_4X4 = {{1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}};
+    private static final int DEFAULT_GROUP_SIZE = 6;
+    private static final int MAX_GROUP_SIZE = 7;
+
+    private static final byte UNSEEN = -1;
+
+    private final PackedBoard board;
+    private final int[][] groups;
+    private final File directory;
+    private ByteBuffer[] tables;
+
+    /**
+     * Constructs a PatternDatabase with a default partition for the board size - the 6-6-3 partition for
+     * the 15-puzzle, or groups of up to 6 consecutive numbers otherwise.
+     *
+     * @param board - The board the heuristic is used for
+     * @param directory - Directory the tables are saved to and loaded from
+     */
+    public PatternDatabase (PackedBoard board, File directory) {
+        this(board, defaultPartition(board), directory);
+    }
+
+    /**
+     * Constructs a PatternDatabase for the given partition of numbers. Tables are not built or loaded until
+     * load() is called.
+     *
+     * @param board - The board the heuristic is used for
+     * @param groups - Disjoint groups of at most 7 numbers (1 to cells - 1), each with one table
+     * @param directory - Directory the tables are saved to and loaded from
+     */
+    public PatternDatabase (PackedBoard board, int[][] groups, File directory) {
+        boolean[] used = new boolean[board.cells];
+        for (int[] group : groups) {
+            if (group.length > MAX_GROUP_SIZE) {
+                throw new IllegalArgumentException(String.format("Groups can have at most %d numbers", MAX_GROUP_SIZE));
+            }
+            for (int num : group) {
+                if (num <= 0 || num >= board.cells || used[num]) {
+                    throw new IllegalArgumentException("Groups must be disjoint sets of numbers on the board");
+                }
+                used[num] = true;
+            }
+        }
+        this.board = board;
+        this.groups = groups;
+        this.directory = directory;
+    }
+
+    @Override
+    public PackedBoard getBoard () {
+        return board;
+    }
+
+    /**
+     * Helper function generating the default partition for a board size.
+     *
+     * @param board - The board size
+     * @return The groups of numbers in the partition.
+     */
+    private static int[][] defaultPartition (PackedBoard board) {
+        if (board.width == 4 && board.height == 4) return PARTITION_4X4;
+
+        int tiles = board.cells - 1;
+        int[][] groups = new int[(tiles + DEFAULT_GROUP_SIZE - 1) / DEFAULT_GROUP_SIZE][];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = new int[Math.min(DEFAULT_GROUP_SIZE, tiles - g * DEFAULT_GROUP_SIZE)];
+            for (int i = 0; i < groups[g].length; i++) groups[g][i] = g * DEFAULT_GROUP_SIZE + i + 1;
+        }
+        return groups;
+    }
+
+    /**
+     * Makes the tables available, mapping each table's file into memory, or building and saving it first if the
+     * file does not exist yet. Does nothing if the tables have already been loaded.
+     *
+     * @throws IOException If a table could not be read or written.
+     */
+    @Override
+    public synchronized void load () throws IOException {
+        if (tables != null) return;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create pattern database directory " + directory);
+        }
+
+        ByteBuffer[] loaded = new ByteBuffer[groups.length];
+        for (int g = 0; g < groups.length; g++) {
+            File file = new File(directory, fileName(groups[g]));
+            long size = placements(groups[g].length);
+            if (!file.isFile() || file.length() != size) {
+                byte[] table = build(groups[g]);
+                try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+                    out.setLength(0);
+                    out.write(table);
+                }
+            }
+            try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                MappedByteBuffer mapped = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+                loaded[g] = mapped;
+            }
+        }
+        tables = loaded;
+    }
+
+    /**
+     * Helper function naming the table file for a group - e.g. pdb-4x4-2-3-4.bin.
+     *
+     * @param group - The numbers in the group
+     * @return The file name for the group's table.
+     */
+    private String fileName (int[] group) {
+        StringBuilder sb = new StringBuilder(String.format("pdb-%dx%d", board.width, board.height));
+        for (int num : group) sb.append('-').append(num);
+        return sb.append(".bin").toString();
+    }
+
+    /**
+     * Heuristic function summing the table values of each group. load() must have been called first.
+     *
+     * @param state - The packed state
+     * @return The additive pattern database estimate of the distance to the goal state.
+     */
+    @Override
+    public int evaluate (long state) {
+        // Invert the state, so that nibble i holds the cell containing number i
+        long cellOf = 0;
+        for (int cell = 0; cell < board.cells; cell++, state >>>= 4) {
+            cellOf |= (long) cell << ((state & 0xF) << 2);
+        }
+
+        int total = 0;
+        for (int g = 0; g < groups.length; g++) {
+            int[] group = groups[g];
+            int index = 0, used = 0;
+            for (int i = 0; i < group.length; i++) {
+                int cell = (int) (cellOf >>> (group[i] << 2)) & 0xF;
+                index = index * (board.cells - i) + cell - Integer.bitCount(used & ((1 << cell) - 1));
+                used |= 1 << cell;
+            }
+            total += tables[g].get(index);
+        }
+        return total;
+    }
+
+    /**
+     * Helper function counting the placements of k distinct items on the board's cells (cells! / (cells - k)!).
+     *
+     * @param k - Number of items placed
+     * @return The number of placements.
+     */
+    private long placements (int k) {
+        long count = 1;
+        for (int i = 0; i < k; i++) count *= board.cells - i;
+        return count;
+    }
+
+    /**
+     * Builds the table for one group by a breadth-first search backwards from the goal.
+     *
+     * The search runs over placements of the group's numbers plus the space, packed 4 bits per cell into an int
+     * (space last). Moving the space onto a cell that is not in the group costs nothing, so each layer is first
+     * extended by all such moves before the next layer (one group move further) is expanded. The table value of a
+     * placement of the group is the minimum over all cells of the space.
+     *
+     * @param group - The numbers in the group
+     * @return The table, indexed by the rank of each placement.
+     */
+    private byte[] build (int[] group) {
+        int k = group.length;
+        int spaceChoices = board.cells - k;
+        byte[] distances = new byte[Math.toIntExact(placements(k + 1))];
+        Arrays.fill(distances, UNSEEN);
+
+        int goal = 0;
+        for (int i = 0; i < k; i++) goal |= (group[i] - 1) << (i << 2);
+        goal |= (board.cells - 1) << (k << 2);
+
+        IntList current = new IntList();
+        IntList next = new IntList();
+        current.add(goal);
+        distances[rank(goal, k + 1)] = 0;
+
+        for (int distance = 0; current.size > 0; distance++) {
+            for (int j = 0; j < current.size; j++) {
+                int placement = current.items[j];
+                if (distances[rank(placement, k + 1)] != distance) continue; // Reached with fewer moves since
+
+                int space = (placement >>> (k << 2)) & 0xF;
+                for (int direction = PackedBoard.UP; direction <= PackedBoard.RIGHT; direction++) {
+                    int to = board.neighbour(space, direction);
+                    if (to < 0) continue;
+
+                    // Find whether a number in the group is on the cell the space moves to
+                    int moved = -1;
+                    for (int i = 0; i < k && moved < 0; i++) {
+                        if (((placement >>> (i << 2)) & 0xF) == to) moved = i;
+                    }
+
+                    int nextPlacement = (placement & ~(0xF << (k << 2))) | (to << (k << 2));
+                    if (moved < 0) {
+                        // Free move - same layer
+                        int index = rank(nextPlacement, k + 1);
+                        if (distances[index] == UNSEEN || distances[index] > distance) {
+                            distances[index] = (byte) distance;
+                            current.add(nextPlacement);
+                        }
+                    } else {
+                        // Moves a number in the group - next layer
+                        nextPlacement = (nextPlacement & ~(0xF << (moved << 2))) | (space << (moved << 2));
+                        int index = rank(nextPlacement, k + 1);
+                        if (distances[index] == UNSEEN) {
+                            distances[index] = (byte) (distance + 1);
+                            next.add(nextPlacement);
+                        }
+                    }
+                }
+            }
+
+            IntList swap = current;
+            current = next;
+            next = swap;
+            next.size = 0;
+        }
+
+        // The space is the last (least significant) digit of the rank, so its placements are contiguous
+        byte[] table = new byte[distances.length / spaceChoices];
+        for (int index = 0; index < table.length; index++) {
+            byte best = Byte.MAX_VALUE;
+            for (int s = 0; s < spaceChoices; s++) {
+                byte d = distances[index * spaceChoices + s];
+                if (d != UNSEEN && d < best) best = d;
+            }
+            table[index] = best;
+        }
+        return table;
+    }
+
+    /**
+     * Helper function ranking a placement of k items as a partial permutation of the board's cells - the first
+     * item is the most significant digit (base cells), the next one base (cells - 1), and so on.
+     *
+     * @param placement - The cell of each item, 4 bits per item
+     * @param k - Number of items
+     * @return The rank of the placement, between 0 and placements(k) - 1.
+     */
+    private int rank (int placement, int k) {
+        int index = 0, used = 0;
+        for (int i = 0; i < k; i++) {
+            int cell = (placement >>> (i << 2)) & 0xF;
+            index = index * (board.cells - i) + cell - Integer.bitCount(used & ((1 << cell) - 1));
+            used |= 1 << cell;
+        }
+        return index;
+    }
+
+    /**
+     * Minimal growable list of ints, used for the search layers while building tables.
+     */
+    private static class IntList {
+        int[] items = new int[1024];
+        int size;
+
+        void add (int item) {
+            if (size == items.length) items = Arrays.copyOf(items, size << 1);
+            items[size++] = item;
+        }
+    }
+}
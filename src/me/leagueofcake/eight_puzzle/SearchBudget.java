@@ -0,0 +1,97 @@
+package me.leagueofcake.eight_puzzle;
+
+/**
+ * SearchBudget class - limits on how long a search may run and how much it may use, plus a flag to cancel it from
+ * another thread.
+ *
+ * A search asks isDue() after each expanded node, which compares the count with the node limit, and only calls
+ * check() every CHECK_INTERVAL nodes (or once the node limit is reached), so reading the clock and estimating memory
+ * cost almost nothing next to the expansions while the node limit stays exact. It stops with a partial result (its
+ * statistics so far) once the budget has run out or cancel() has been called. The time limit starts when the budget
+ * is constructed, so one budget can cover a whole request. A budget may be shared by several searches and threads.
+ */
+public class SearchBudget {
+    // Number of nodes expanded between checks of the budget
+    public static final int CHECK_INTERVAL = 1024;
+
+    private final long deadline;
+    private final long maxNodes;
+    private final long nodeLimit; // maxNodes, or Long.MAX_VALUE if there is no limit
+    private final long maxBytes;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a budget, starting its time limit. A limit of 0 means no limit.
+     *
+     * @param timeLimitMillis - Time the searches may take from now, in milliseconds
+     * @param maxNodes - Largest number of nodes a search may expand
+     * @param maxBytes - Largest estimated number of bytes a search may use for its nodes and tables
+     */
+    public SearchBudget (long timeLimitMillis, long maxNodes, long maxBytes) {
+        if (timeLimitMillis < 0 || maxNodes < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Limits must not be negative");
+        }
+        this.deadline = timeLimitMillis > 0 ? System.nanoTime() + timeLimitMillis * 1000000L : 0;
+        this.maxNodes = maxNodes;
+        this.nodeLimit = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Constructs a budget with no limits, which only stops a search if it is cancelled.
+     */
+    public SearchBudget () {
+        this(0, 0, 0);
+    }
+
+    /**
+     * Asks every search using this budget to stop at its next check.
+     */
+    public void cancel () {
+        cancelled = true;
+    }
+
+    /**
+     * @return Whether cancel() has been called.
+     */
+    public boolean isCancelled () {
+        return cancelled;
+    }
+
+    /**
+     * @return The System.nanoTime() after which searches must stop, or 0 if there is no time limit.
+     */
+    public long getDeadline () {
+        return deadline;
+    }
+
+    /**
+     * Returns whether a search should call check() now - every CHECK_INTERVAL expanded nodes, and on every node once
+     * the node limit is reached.
+     *
+     * @param nodesExpanded - Number of nodes the search has expanded
+     * @return Whether check() is due.
+     */
+    public boolean isDue (long nodesExpanded) {
+        return nodesExpanded >= nodeLimit || nodesExpanded % CHECK_INTERVAL == 0;
+    }
+
+    /**
+     * Checks whether a search may carry on.
+     *
+     * @param nodesExpanded - Number of nodes the search has expanded
+     * @param memoryBytes - Estimated number of bytes the search is using
+     * @return null if the search may carry on, or a description of why it must stop.
+     */
+    public String check (long nodesExpanded, long memoryBytes) {
+        if (cancelled) return "Cancelled!";
+        if (maxNodes > 0 && nodesExpanded >= maxNodes) {
+            return String.format("Node budget of %d expansions reached!", maxNodes);
+        }
+        if (maxBytes > 0 && memoryBytes >= maxBytes) {
+            return String.format("Memory budget of %d MB reached!", maxBytes >> 20);
+        }
+        if (deadline != 0 && System.nanoTime() - deadline > 0) return "Out of time!";
+        return null;
+    }
+}
@@ -0,0 +1,247 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.util.Arrays;
+
+/**
+ * SolutionCache class - a bounded, thread-safe cache of optimal solutions for one board size, so repeated puzzles are
+ * answered without searching again (see Solver.setCache).
+ *
+ * Each cached solution is kept as its start state and moves (a path), and every state along the path is indexed in a
+ * StateTable by the path and its position on it. A later puzzle at any of those states is answered by the rest of the
+ * path from that state on, which is also optimal. When a state lies on several cached paths, the latest one is used.
+ *
+ * The capacity is the number of states indexed. Once it would be exceeded, the least recently used paths (added or
+ * used to answer a lookup) are evicted along with every state still indexed to them. Paths are linked in LRU order
+ * through int arrays of path ids, so neither lookups nor evictions allocate anything but the returned moves.
+ *
+ * Every method is synchronized, so one cache can be shared by all the threads solving puzzles of its size.
+ */
+public class SolutionCache {
+    // Number of states indexed by a cache built with the default constructor
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+    // Longest path that can be cached - positions on a path are kept in the low 8 bits of its index entries
+    public static final int MAX_PATH_LENGTH = 255;
+
+    private static final int NONE = -1;
+    private static final int MAX_PATHS = 1 << 23;
+
+    private final PackedBoard board;
+    private final int capacity;
+    private final StateTable index = new StateTable();
+
+    // Paths by id, and the LRU list through them (head is the most recently used)
+    private long[] starts = new long[16];
+    private byte[][] moves = new byte[16][];
+    private int[] newer = new int[16];
+    private int[] older = new int[16];
+    private int head = NONE, tail = NONE;
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int pathCount; // Number of ids ever handed out, including freed ones
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs an empty cache indexing up to DEFAULT_CAPACITY states.
+     *
+     * @param board - The board size of the solutions
+     */
+    public SolutionCache (PackedBoard board) {
+        this(board, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param board - The board size of the solutions
+     * @param capacity - Largest number of states indexed at once
+     */
+    public SolutionCache (PackedBoard board, int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("The capacity must be positive");
+        this.board = board;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return The board size of the solutions.
+     */
+    public PackedBoard getBoard () {
+        return board;
+    }
+
+    /**
+     * Looks up an optimal solution for a state, marking the path it is taken from as recently used.
+     *
+     * @param state - The packed state
+     * @return The directions the space moves in on an optimal solution, or null if the state is not cached.
+     */
+    public synchronized byte[] get (long state) {
+        int entry = index.get(state);
+        if (entry == StateTable.NOT_FOUND) {
+            misses++;
+            return null;
+        }
+        hits++;
+        int id = entry >>> 8;
+        touch(id);
+        return Arrays.copyOfRange(moves[id], entry & 0xFF, moves[id].length);
+    }
+
+    /**
+     * Caches an optimal solution, indexing every state along it. Solutions longer than MAX_PATH_LENGTH or with more
+     * states than the capacity are not cached.
+     *
+     * @param state - The packed start state
+     * @param solution - The directions the space moves in on an optimal solution from the state
+     */
+    public synchronized void put (long state, byte[] solution) {
+        int entry = index.get(state);
+        if (entry != StateTable.NOT_FOUND) {
+            touch(entry >>> 8);
+            return;
+        }
+        if (solution.length > MAX_PATH_LENGTH || solution.length + 1 > capacity) return;
+
+        while (tail != NONE && (index.size() + solution.length + 1 > capacity || liveCount() == MAX_PATHS)) {
+            evict(tail);
+        }
+
+        int id = newId();
+        starts[id] = state;
+        moves[id] = solution.clone();
+        older[id] = head;
+        newer[id] = NONE;
+        if (head != NONE) newer[head] = id;
+        head = id;
+        if (tail == NONE) tail = id;
+
+        int space = board.spaceIndex(state);
+        index.put(state, id << 8);
+        for (int i = 0; i < solution.length; i++) {
+            int from = board.neighbour(space, solution[i]);
+            state = PackedBoard.slide(state, space, from);
+            space = from;
+            index.put(state, (id << 8) | (i + 1));
+        }
+    }
+
+    /**
+     * Removes every cached solution, keeping the statistics.
+     */
+    public synchronized void clear () {
+        index.clear();
+        Arrays.fill(moves, null);
+        head = tail = NONE;
+        freeCount = 0;
+        pathCount = 0;
+    }
+
+    /**
+     * @return The number of states indexed.
+     */
+    public synchronized int size () {
+        return index.size();
+    }
+
+    /**
+     * @return The number of lookups answered from the cache.
+     */
+    public synchronized long getHits () {
+        return hits;
+    }
+
+    /**
+     * @return The number of lookups for states not in the cache.
+     */
+    public synchronized long getMisses () {
+        return misses;
+    }
+
+    /**
+     * @return The number of paths evicted to make room for others.
+     */
+    public synchronized long getEvictions () {
+        return evictions;
+    }
+
+    /**
+     * @return The number of paths currently cached.
+     */
+    private int liveCount () {
+        return pathCount - freeCount;
+    }
+
+    /**
+     * Helper function returning an unused path id, growing the path arrays if needed.
+     *
+     * @return The id.
+     */
+    private int newId () {
+        if (freeCount > 0) return freeIds[--freeCount];
+        if (pathCount == starts.length) {
+            int length = pathCount << 1;
+            starts = Arrays.copyOf(starts, length);
+            moves = Arrays.copyOf(moves, length);
+            newer = Arrays.copyOf(newer, length);
+            older = Arrays.copyOf(older, length);
+            freeIds = Arrays.copyOf(freeIds, length);
+        }
+        return pathCount++;
+    }
+
+    /**
+     * Moves a path to the head of the LRU list.
+     *
+     * @param id - The id of the path
+     */
+    private void touch (int id) {
+        if (id == head) return;
+        unlink(id);
+        older[id] = head;
+        newer[id] = NONE;
+        newer[head] = id;
+        head = id;
+    }
+
+    /**
+     * Helper function removing a path from the LRU list.
+     *
+     * @param id - The id of the path
+     */
+    private void unlink (int id) {
+        if (newer[id] == NONE) {
+            head = older[id];
+        } else {
+            older[newer[id]] = older[id];
+        }
+        if (older[id] == NONE) {
+            tail = newer[id];
+        } else {
+            newer[older[id]] = newer[id];
+        }
+    }
+
+    /**
+     * Evicts a path, removing every state along it that is still indexed to it.
+     *
+     * @param id - The id of the path
+     */
+    private void evict (int id) {
+        unlink(id);
+        long state = starts[id];
+        int space = board.spaceIndex(state);
+        byte[] solution = moves[id];
+        for (int i = 0; ; i++) {
+            if (index.get(state) == ((id << 8) | i)) index.remove(state);
+            if (i == solution.length) break;
+            int from = board.neighbour(space, solution[i]);
+            state = PackedBoard.slide(state, space, from);
+            space = from;
+        }
+        moves[id] = null;
+        freeIds[freeCount++] = id;
+        evictions++;
+    }
+}
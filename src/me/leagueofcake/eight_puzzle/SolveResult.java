@@ -0,0 +1,305 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.util.*;
+
+/**
+ * SolveResult class - the outcome of one Solver run, with the solution and statistics about the search.
+ *
+ * The solution is stored as the moves of the space, packed 2 bits per move (BoardGeometry.UP, DOWN, LEFT or RIGHT),
+ * so even long solutions take a few bytes. The boards along the solution are only built if getPath() is called.
+ */
+public class SolveResult {
+    /**
+     * Outcome of a run.
+     */
+    public enum Status {
+        SOLVED,
+        UNSOLVABLE,    // The puzzle cannot be solved
+        NOT_SUPPORTED, // The mode does not support the puzzle's board size or the given tables
+        LIMIT_REACHED, // The search ran out of its node store or budget (see SearchBudget) before finding a solution
+        CANCELLED,     // The search was cancelled through its SearchBudget
+        FAILED         // A table could not be loaded, or the search was interrupted
+    }
+
+    private final Status status;
+    private final String message;
+    private final EightPuzzle original;
+    private final byte[] packedMoves;
+    private final int moveCount;
+    private final long nodesExpanded;
+    private final long nodesGenerated;
+    private final long peakOpenSize;
+    private final long peakClosedSize;
+    private final long elapsedNanos;
+    private final long[] threadNodesExpanded;
+    private final double speedup;
+    private final double suboptimalityBound;
+
+    /**
+     * Constructs the result of a run that did not find a solution.
+     *
+     * @param status - Why no solution was found (not SOLVED)
+     * @param message - Description of the problem, for printing
+     */
+    public SolveResult (Status status, String message) {
+        this(status, message, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Constructs the result of a run that stopped without a solution, with the statistics of the search so far.
+     *
+     * @param status - Why no solution was found (not SOLVED)
+     * @param message - Description of the problem, for printing
+     * @param nodesExpanded - Number of nodes expanded before stopping
+     * @param nodesGenerated - Number of nodes generated before stopping
+     * @param peakOpenSize - Largest number of nodes waiting to be expanded at once
+     * @param peakClosedSize - Largest number of states recorded as seen at once
+     * @param elapsedNanos - Wall-clock time taken, in nanoseconds
+     */
+    public SolveResult (Status status, String message, long nodesExpanded, long nodesGenerated,
+                        long peakOpenSize, long peakClosedSize, long elapsedNanos) {
+        this.status = status;
+        this.message = message;
+        this.original = null;
+        this.packedMoves = new byte[0];
+        this.moveCount = 0;
+        this.nodesExpanded = nodesExpanded;
+        this.nodesGenerated = nodesGenerated;
+        this.peakOpenSize = peakOpenSize;
+        this.peakClosedSize = peakClosedSize;
+        this.elapsedNanos = elapsedNanos;
+        this.threadNodesExpanded = new long[0];
+        this.speedup = 1;
+        this.suboptimalityBound = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Constructs the result of a single-threaded run that found a solution.
+     *
+     * @param original - The puzzle that was solved
+     * @param moves - The directions the space moves in, one per move
+     * @param nodesExpanded - Number of nodes expanded
+     * @param nodesGenerated - Number of nodes generated
+     * @param peakOpenSize - Largest number of nodes waiting to be expanded at once
+     * @param peakClosedSize - Largest number of states recorded as seen at once
+     * @param elapsedNanos - Wall-clock time taken, in nanoseconds
+     */
+    public SolveResult (EightPuzzle original, byte[] moves, long nodesExpanded, long nodesGenerated,
+                        long peakOpenSize, long peakClosedSize, long elapsedNanos) {
+        this(original, moves, nodesExpanded, nodesGenerated, peakOpenSize, peakClosedSize, elapsedNanos, 1);
+    }
+
+    /**
+     * Constructs the result of a single-threaded run that found a solution which may not be optimal.
+     *
+     * @param original - The puzzle that was solved
+     * @param moves - The directions the space moves in, one per move
+     * @param nodesExpanded - Number of nodes expanded
+     * @param nodesGenerated - Number of nodes generated
+     * @param peakOpenSize - Largest number of nodes waiting to be expanded at once
+     * @param peakClosedSize - Largest number of states recorded as seen at once
+     * @param elapsedNanos - Wall-clock time taken, in nanoseconds
+     * @param suboptimalityBound - Largest possible ratio of the solution's length to the optimal length (1 if the
+     *                             solution is optimal, or infinity if there is no bound)
+     */
+    public SolveResult (EightPuzzle original, byte[] moves, long nodesExpanded, long nodesGenerated,
+                        long peakOpenSize, long peakClosedSize, long elapsedNanos, double suboptimalityBound) {
+        this(original, moves, nodesExpanded, nodesGenerated, peakOpenSize, peakClosedSize, elapsedNanos,
+                new long[] {nodesExpanded}, 1, suboptimalityBound);
+    }
+
+    /**
+     * Constructs the result of a run that found an optimal solution, with the nodes expanded by each thread.
+     *
+     * @param original - The puzzle that was solved
+     * @param moves - The directions the space moves in, one per move
+     * @param nodesExpanded - Number of nodes expanded, over all threads
+     * @param nodesGenerated - Number of nodes generated, over all threads
+     * @param peakOpenSize - Largest number of nodes waiting to be expanded at once
+     * @param peakClosedSize - Largest number of states recorded as seen at once
+     * @param elapsedNanos - Wall-clock time taken, in nanoseconds
+     * @param threadNodesExpanded - Number of nodes expanded by each thread
+     * @param speedup - Estimated speedup over a single thread
+     */
+    public SolveResult (EightPuzzle original, byte[] moves, long nodesExpanded, long nodesGenerated,
+                        long peakOpenSize, long peakClosedSize, long elapsedNanos,
+                        long[] threadNodesExpanded, double speedup) {
+        this(original, moves, nodesExpanded, nodesGenerated, peakOpenSize, peakClosedSize, elapsedNanos,
+                threadNodesExpanded, speedup, 1);
+    }
+
+    /**
+     * Helper constructor taking every statistic of a run that found a solution.
+     *
+     * @param original - The puzzle that was solved
+     * @param moves - The directions the space moves in, one per move
+     * @param nodesExpanded - Number of nodes expanded, over all threads
+     * @param nodesGenerated - Number of nodes generated, over all threads
+     * @param peakOpenSize - Largest number of nodes waiting to be expanded at once
+     * @param peakClosedSize - Largest number of states recorded as seen at once
+     * @param elapsedNanos - Wall-clock time taken, in nanoseconds
+     * @param threadNodesExpanded - Number of nodes expanded by each thread
+     * @param speedup - Estimated speedup over a single thread
+     * @param suboptimalityBound - Largest possible ratio of the solution's length to the optimal length
+     */
+    private SolveResult (EightPuzzle original, byte[] moves, long nodesExpanded, long nodesGenerated,
+                         long peakOpenSize, long peakClosedSize, long elapsedNanos,
+                         long[] threadNodesExpanded, double speedup, double suboptimalityBound) {
+        this.status = Status.SOLVED;
+        this.message = "Solved!";
+        this.original = new EightPuzzle(original);
+        this.moveCount = moves.length;
+        this.packedMoves = new byte[(moves.length + 3) >> 2];
+        for (int i = 0; i < moves.length; i++) packedMoves[i >> 2] |= moves[i] << ((i & 3) << 1);
+        this.nodesExpanded = nodesExpanded;
+        this.nodesGenerated = nodesGenerated;
+        this.peakOpenSize = peakOpenSize;
+        this.peakClosedSize = peakClosedSize;
+        this.elapsedNanos = elapsedNanos;
+        this.threadNodesExpanded = threadNodesExpanded.clone();
+        this.speedup = speedup;
+        this.suboptimalityBound = suboptimalityBound;
+    }
+
+    /**
+     * @return Whether a solution was found.
+     */
+    public boolean isSolved () {
+        return status == Status.SOLVED;
+    }
+
+    /**
+     * @return The outcome of the run.
+     */
+    public Status getStatus () {
+        return status;
+    }
+
+    /**
+     * @return Description of the outcome, for printing (e.g. "Unsolvable!").
+     */
+    public String getMessage () {
+        return message;
+    }
+
+    /**
+     * @return The number of moves in the solution.
+     */
+    public int getMoveCount () {
+        return moveCount;
+    }
+
+    /**
+     * @param i - Index of the move, from 0 to getMoveCount() - 1
+     * @return The direction the space moves in on that move.
+     */
+    public int getMove (int i) {
+        return (packedMoves[i >> 2] >>> ((i & 3) << 1)) & 3;
+    }
+
+    /**
+     * @return The directions the space moves in, one per move.
+     */
+    public byte[] getMoves () {
+        byte[] moves = new byte[moveCount];
+        for (int i = 0; i < moveCount; i++) moves[i] = (byte) getMove(i);
+        return moves;
+    }
+
+    /**
+     * @return The solution as a string of u/d/l/r moves of the space (as in the CLI).
+     */
+    public String getMoveString () {
+        StringBuilder sb = new StringBuilder(moveCount);
+        for (int i = 0; i < moveCount; i++) sb.append("udlr".charAt(getMove(i)));
+        return sb.toString();
+    }
+
+    /**
+     * Builds the boards along the solution by replaying the moves from the original puzzle.
+     *
+     * @return Each board from the original puzzle to the goal state, or an empty List if there is no solution.
+     */
+    public List<EightPuzzle> getPath () {
+        List<EightPuzzle> path = new ArrayList<>();
+        if (original == null) return path;
+
+        EightPuzzle curr = new EightPuzzle(original);
+        path.add(curr);
+        for (int i = 0; i < moveCount; i++) {
+            curr = new EightPuzzle(curr);
+            switch (getMove(i)) {
+                case BoardGeometry.UP: curr.moveUp(); break;
+                case BoardGeometry.DOWN: curr.moveDown(); break;
+                case BoardGeometry.LEFT: curr.moveLeft(); break;
+                default: curr.moveRight(); break;
+            }
+            path.add(curr);
+        }
+        return path;
+    }
+
+    /**
+     * @return The number of nodes expanded (over all threads).
+     */
+    public long getNodesExpanded () {
+        return nodesExpanded;
+    }
+
+    /**
+     * @return The number of nodes generated (over all threads).
+     */
+    public long getNodesGenerated () {
+        return nodesGenerated;
+    }
+
+    /**
+     * @return The largest number of nodes waiting to be expanded at once.
+     */
+    public long getPeakOpenSize () {
+        return peakOpenSize;
+    }
+
+    /**
+     * @return The largest number of states recorded as seen at once.
+     */
+    public long getPeakClosedSize () {
+        return peakClosedSize;
+    }
+
+    /**
+     * @return The wall-clock time taken, in nanoseconds.
+     */
+    public long getElapsedNanos () {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The number of nodes expanded per second of wall-clock time.
+     */
+    public double getNodesPerSecond () {
+        return elapsedNanos == 0 ? 0 : nodesExpanded * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return The number of nodes expanded by each thread (one entry for single-threaded modes).
+     */
+    public long[] getThreadNodesExpanded () {
+        return threadNodesExpanded.clone();
+    }
+
+    /**
+     * @return The estimated speedup over a single thread (1 for single-threaded modes).
+     */
+    public double getSpeedup () {
+        return speedup;
+    }
+
+    /**
+     * @return The largest possible ratio of the solution's length to the optimal length - 1 for optimal modes,
+     * infinity for greedy search, and the bound reached by ARA* when its time ran out.
+     */
+    public double getSuboptimalityBound () {
+        return suboptimalityBound;
+    }
+}
@@ -1,17 +1,57 @@
 package me.leagueofcake.eight_puzzle;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * Solver class for the EightPuzzle.
  *
  * Can solve a puzzle using the following approaches:
  *   - BFS
+ *   - Bidirectional BFS
  *   - Greedy (Manhattan Distance)
  *   - A* (Manhattan Distance + Depth)
+ *   - IDA* (Manhattan Distance + Depth, with iterative deepening)
+ *   - Parallel A* (HDA*, with the states split between threads by hash)
+ *   - Anytime A* (ARA*, weighted A* refined with lower weights until a deadline)
+ *   - Lookup in a precomputed DistanceTable (small boards only)
+ *
+ * Each mode returns a SolveResult holding the solution as a sequence of moves and statistics about the search, and
+ * prints nothing - see EightPuzzleCLI for printing results.
+ *
+ * If the Solver is given a Heuristic (e.g. linear conflicts, walking distance or a PatternDatabase), greedy, A*, HDA*
+ * and IDA* use it in place of the Manhattan distance.
+ *
+ * The board size is taken from the puzzle. Boards of up to 16 cells (e.g. 3x3 and 4x4) are searched as packed longs
+ * (see PackedBoard). Larger boards (e.g. 5x5) have too many states for the other modes and can only be solved by
+ * IDA*, which then works on an array of tiles.
+ *
+ * Every search mode checks the Solver's SearchBudget (if one is set) when SearchBudget.isDue() says so, and stops
+ * with the status LIMIT_REACHED (or CANCELLED) and its statistics so far once the budget has run out. ARA*
+ * instead returns the best solution it has found, if any.
+ *
+ * If the Solver is given a SolutionCache, every search mode first looks the puzzle up in it, and optimal solutions
+ * found are added to it, so puzzles on an already solved path are answered without searching.
  */
 public class Solver {
+    // StateTable value for states that have already been expanded
+    private static final int CLOSED = Integer.MAX_VALUE;
+
+    // Weight of the heuristic in the first ARA* search, if none is given
+    public static final double DEFAULT_ARA_WEIGHT = 3;
+    // ARA* weights are handled as multiples of 1 / ARA_WEIGHT_SCALE, so priorities stay integers
+    private static final int ARA_WEIGHT_SCALE = 10;
+    // Amount the ARA* weight is lowered by after each search, in multiples of 1 / ARA_WEIGHT_SCALE
+    private static final int ARA_WEIGHT_STEP = 5;
+
     private final EightPuzzle original;
+    private final BoardGeometry geometry;
+    private final PackedBoard packedBoard;
+    private final Heuristic heuristic;
+    private long offHeapLimit;
+    private SearchBudget budget;
+    private SolutionCache cache;
 
     /**
      * Constructor for the Solver.
@@ -19,149 +59,699 @@ public class Solver {
      * @param puzzle - The puzzle state to be solved.
      */
     public Solver (EightPuzzle puzzle) {
+        this(puzzle, null);
+    }
+
+    /**
+     * Constructor for a Solver using the given heuristic for greedy, A*, HDA* and IDA* - e.g. a LinearConflictHeuristic,
+     * WalkingDistanceHeuristic or PatternDatabase.
+     *
+     * @param puzzle - The puzzle state to be solved.
+     * @param heuristic - Heuristic for the puzzle's board size, or null to use the Manhattan distance.
+     */
+    public Solver (EightPuzzle puzzle, Heuristic heuristic) {
         original = new EightPuzzle(puzzle);
+        geometry = BoardGeometry.of(original.getWidth(), original.getHeight());
+        packedBoard = geometry instanceof PackedBoard ? (PackedBoard) geometry : null;
+        this.heuristic = heuristic != null || packedBoard == null ? heuristic : new ManhattanHeuristic(packedBoard);
+    }
+
+    /**
+     * Makes BFS, bidirectional BFS, greedy, A* and ARA* keep their nodes off the Java heap (see OffHeapNodeArena), and
+     * caps the memory of each search. The nodes are the largest part of a search, but its state tables and open list
+     * stay on the heap and still grow with it, so they are counted against the same limit - a search stops with the
+     * status LIMIT_REACHED once its nodes cannot get another slab, or its nodes, tables and open list together go
+     * over the limit (checked every SearchBudget.CHECK_INTERVAL expanded nodes).
+     *
+     * @param maxBytes - Largest number of bytes for the nodes, tables and open list of a search, at least
+     *                   OffHeapNodeArena.MIN_BYTES, or 0 to keep nodes on the heap with no limit (default)
+     * @throws IllegalArgumentException If the limit is neither 0 nor at least OffHeapNodeArena.MIN_BYTES.
+     */
+    public void setOffHeapLimit (long maxBytes) {
+        if (maxBytes != 0 && maxBytes < OffHeapNodeArena.MIN_BYTES) {
+            throw new IllegalArgumentException(String.format("The off-heap limit must be 0 or at least %d KB",
+                    OffHeapNodeArena.MIN_BYTES >> 10));
+        }
+        offHeapLimit = maxBytes;
     }
 
     /**
-     * Solves the puzzle using a greedy approach (Manhattan distance).
-     * @return Whether the puzzle was solved successfully.
+     * Sets a limit on the time, expanded nodes and memory of later searches, which can also be used to cancel a
+     * search from another thread. The memory of a search is estimated from its node store and tables.
+     *
+     * @param budget - The budget, or null for no limits (default)
      */
-    public boolean solveGreedy () {
-        return solveWithHeuristic(greedyManhattan());
+    public void setBudget (SearchBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Sets a cache of optimal solutions shared with other Solvers for the same board size. Every search mode except
+     * solveWithTable() answers from the cache if it can, and optimal solutions are added to it.
+     *
+     * @param cache - The cache, or null for none (default)
+     */
+    public void setCache (SolutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Solves the puzzle using a greedy approach (heuristic only).
+     * @return The result - the solution is not necessarily the shortest (unless taken from the cache).
+     */
+    public SolveResult solveGreedy () {
+        return withCache(() -> solveWithHeuristic(0, 1));
     }
 
     /**
      * Solves the puzzle using BFS (breadth-first search).
      *
-     * @return Whether the puzzle was solved successfully.
+     * @return The result, with an optimal solution if solved.
      */
-    public boolean solveBFS () {
-        return solveWithHeuristic(puzzleNodeDepth());
+    public SolveResult solveBFS () {
+        return withCache(() -> solveWithHeuristic(1, 0));
     }
 
     /**
-     * Solves the puzzle using A* search (depth + Manhattan distance)
+     * Solves the puzzle using bidirectional BFS - one BFS from the puzzle and one from the goal state, until their
+     * visited states meet.
      *
-     * @return Whether the puzzle was solved successfully.
+     * Each step expands a whole layer of whichever search has the smaller frontier. The first layer to generate a
+     * state already seen by the other search gives the shortest solution, taking the meeting state that minimises
+     * the depths from both sides. Each search only needs to reach about half the solution depth, so roughly the
+     * square root of the states BFS visits are expanded.
+     *
+     * @return The result, with an optimal solution if solved.
      */
-    public boolean solveAStar () {
-        return solveWithHeuristic(aStarManhattan());
+    public SolveResult solveBidirectionalBFS () {
+        return withCache(this::bidirectionalBFS);
     }
 
     /**
-     * Comparator using the Manhattan distance of two PuzzleNodes.
+     * Bidirectional BFS without the cache - see solveBidirectionalBFS().
      *
-     * @return An integer representing the ordering of the PuzzleNodes.
+     * @return The result, with an optimal solution if solved.
      */
-    private Comparator<PuzzleNode> greedyManhattan () {
-        return (p1, p2) -> (p1.current.heuristicManhattan() - p2.current.heuristicManhattan());
+    private SolveResult bidirectionalBFS () {
+        SolveResult problem = checkCanSolve();
+        if (problem != null) return problem;
+        long start = System.nanoTime();
+        long nodesExpanded = 0, peakOpenSize = 0;
+
+        // Nodes of each search in the order they were generated (so each layer is contiguous), and a table of the
+        // handle of each state's node
+        // Each side may use the whole limit, as the total of both is checked along with the tables
+        NodeArena forward = newArena(offHeapLimit);
+        NodeArena backward = newArena(offHeapLimit);
+        StateTable forwardSeen = new StateTable();
+        StateTable backwardSeen = new StateTable();
+
+        long originalState = packedBoard.pack(original);
+        forwardSeen.put(originalState, forward.addRoot(originalState, packedBoard.spaceIndex(originalState), 0));
+        backwardSeen.put(packedBoard.goal(), backward.addRoot(packedBoard.goal(), packedBoard.cells - 1, 0));
+
+        // Handle of the first node in the current layer of each search
+        int forwardLayer = 0, backwardLayer = 0;
+
+        int forwardMeet = NodeArena.NONE, backwardMeet = NodeArena.NONE;
+        if (packedBoard.isGoal(originalState)) {
+            forwardMeet = 0;
+            backwardMeet = 0;
+        }
+
+        while (forwardMeet == NodeArena.NONE && forwardLayer < forward.size() && backwardLayer < backward.size()) {
+            peakOpenSize = Math.max(peakOpenSize, forward.size() - forwardLayer + backward.size() - backwardLayer);
+            boolean expandForward = forward.size() - forwardLayer <= backward.size() - backwardLayer;
+            NodeArena nodes = expandForward ? forward : backward;
+            NodeArena otherNodes = expandForward ? backward : forward;
+            StateTable seen = expandForward ? forwardSeen : backwardSeen;
+            StateTable otherSeen = expandForward ? backwardSeen : forwardSeen;
+            int layerStart = expandForward ? forwardLayer : backwardLayer;
+            int layerEnd = nodes.size();
+
+            int bestLength = Integer.MAX_VALUE;
+            for (int currNode = layerStart; currNode < layerEnd; currNode++) {
+                long state = nodes.state(currNode);
+                int space = nodes.space(currNode);
+                nodesExpanded++;
+                if (nodesExpanded % SearchBudget.CHECK_INTERVAL == 0 || budget != null && budget.isDue(nodesExpanded)) {
+                    long memory = forward.getMemoryUsage() + backward.getMemoryUsage() + forwardSeen.getMemoryUsage()
+                            + backwardSeen.getMemoryUsage();
+                    if (overMemoryLimit(memory)) return limitReached();
+                    String reason = budget == null ? null : budget.check(nodesExpanded, memory);
+                    if (reason != null) {
+                        return stopped(reason, nodesExpanded, forward.size() + backward.size() - 2, peakOpenSize,
+                                forwardSeen.size() + backwardSeen.size(), start);
+                    }
+                }
+
+                for (int direction = PackedBoard.UP; direction <= PackedBoard.RIGHT; direction++) {
+                    int from = packedBoard.neighbour(space, direction);
+                    if (from < 0) continue;
+
+                    long next = PackedBoard.slide(state, space, from);
+                    if (seen.get(next) != StateTable.NOT_FOUND) continue;
+
+                    int p = nodes.addChild(currNode, next, from, direction, 0);
+                    if (p == NodeArena.NONE) return limitReached();
+                    seen.put(next, p);
+
+                    int other = otherSeen.get(next);
+                    if (other == StateTable.NOT_FOUND) continue;
+
+                    int length = nodes.depth(p) + otherNodes.depth(other);
+                    if (length < bestLength) {
+                        bestLength = length;
+                        forwardMeet = expandForward ? p : other;
+                        backwardMeet = expandForward ? other : p;
+                    }
+                }
+            }
+
+            if (expandForward) {
+                forwardLayer = layerEnd;
+            } else {
+                backwardLayer = layerEnd;
+            }
+        }
+
+        if (forwardMeet == NodeArena.NONE) return new SolveResult(SolveResult.Status.UNSOLVABLE, "Unsolvable!");
+
+        return new SolveResult(original, generateMoves(forward, forwardMeet, backward, backwardMeet), nodesExpanded,
+                forward.size() + backward.size() - 2, peakOpenSize, forwardSeen.size() + backwardSeen.size(),
+                System.nanoTime() - start);
     }
 
     /**
-     * Comparator using the depth of two PuzzleNodes.
+     * Solves the puzzle using A* search (depth + heuristic)
      *
-     * @return An integer representing the ordering of the PuzzleNodes.
+     * @return The result, with an optimal solution if solved.
      */
-    private Comparator<PuzzleNode> puzzleNodeDepth () {
-        return (p1, p2) -> (p1.depth - p2.depth);
+    public SolveResult solveAStar () {
+        return withCache(() -> solveWithHeuristic(1, 1));
     }
 
     /**
-     * Comparator using the Manhattan distance and depth of two PuzzleNodes.
+     * Solves the puzzle using ARA* with the default initial weight - see solveARAStar(double, long).
      *
-     * @return An integer representing the ordering of the PuzzleNodes.
+     * @param timeLimitMillis - Time after which the best solution found so far is returned, in milliseconds
+     * @return The result, with the best solution found and its suboptimality bound if solved.
      */
-    private Comparator<PuzzleNode> aStarManhattan () {
-        return (p1, p2) -> (greedyManhattan().compare(p1, p2) + puzzleNodeDepth().compare(p1, p2));
+    public SolveResult solveARAStar (long timeLimitMillis) {
+        return solveARAStar(DEFAULT_ARA_WEIGHT, timeLimitMillis);
     }
 
     /**
-     * Solver function that takes in a comparator that determines how the
-     * priority queue orders PuzzleNodes.
+     * Solves the puzzle using anytime repairing A* (ARA*, Likhachev, Gordon & Thrun), which finds a solution quickly
+     * and improves it until a deadline.
      *
-     * Prints out the number of nodes expanded and the solution from the start to goal state.
+     * The first search is weighted A*, ordering nodes by (depth + weight * heuristic), which finds a solution at
+     * most weight times the optimal length while expanding far fewer nodes than A*. The weight is then lowered and
+     * the search carries on from where it stopped rather than starting again - the depth of every state found so
+     * far is kept, and only states whose depth has improved since they were expanded (or that were never expanded)
+     * are queued again. Each search stops once no queued node could lead to a solution shorter than the best one,
+     * and after a search with weight 1 the solution is optimal.
      *
-     * @param heuristicFunc - comparator function
-     * @return Whether the puzzle was solved successfully.
+     * When time (or the Solver's budget) runs out, the best solution found is returned with a bound on how far it can
+     * be from optimal - its length divided by the lowest (depth + heuristic) of any queued node, and never more than
+     * the weight of the last finished search.
+     *
+     * @param initialWeight - Weight of the heuristic in the first search (at least 1)
+     * @param timeLimitMillis - Time after which the best solution found so far is returned, in milliseconds
+     * @return The result, with the best solution found and its suboptimality bound if solved, or LIMIT_REACHED if
+     * no solution was found in time.
      */
-    private boolean solveWithHeuristic (Comparator<PuzzleNode> heuristicFunc) {
-        if (!original.isSolvable()) {
-            System.out.println("Unsolvable!");
-            return false;
+    public SolveResult solveARAStar (double initialWeight, long timeLimitMillis) {
+        if (initialWeight < 1) throw new IllegalArgumentException("The weight must be at least 1");
+        return withCache(() -> araStar(initialWeight, timeLimitMillis));
+    }
+
+    /**
+     * ARA* without the cache - see solveARAStar(double, long).
+     *
+     * @param initialWeight - Weight of the heuristic in the first search (at least 1)
+     * @param timeLimitMillis - Time after which the best solution found so far is returned, in milliseconds
+     * @return The result, with the best solution found and its suboptimality bound if solved.
+     */
+    private SolveResult araStar (double initialWeight, long timeLimitMillis) {
+        SolveResult problem = checkCanSolve();
+        if (problem != null) return problem;
+        long start = System.nanoTime();
+        long deadline = start + timeLimitMillis * 1000000L;
+        long nodesExpanded = 0, nodesGenerated = 0, peakOpenSize = 0;
+
+        StateTable best = new StateTable();   // Handle of the node with the lowest depth for each state
+        StateTable closed = new StateTable(); // Last search each state was expanded in
+        BucketQueue open = new BucketQueue();
+        NodeArena nodes = newArena(offHeapLimit);
+        int[] inconsistent = new int[64];     // Closed nodes whose depth has improved, for the next search
+        int inconsistentSize = 0;
+
+        int weight = (int) Math.round(initialWeight * ARA_WEIGHT_SCALE);
+        long originalState = packedBoard.pack(original);
+        int root = nodes.addRoot(originalState, packedBoard.spaceIndex(originalState),
+                heuristic.evaluate(originalState));
+        best.put(originalState, root);
+        open.add(root, weight * nodes.heuristic(root), 0);
+
+        int goalNode = NodeArena.NONE;
+        long goalPriority = Long.MAX_VALUE; // ARA_WEIGHT_SCALE * the length of the best solution
+        double bound = Double.POSITIVE_INFINITY;
+        String stopReason = null;
+        boolean outOfMemory = false;
+
+        for (int search = 0; ; search++) {
+            // Expand nodes until none left could improve on the best solution. An empty queue reports a priority of
+            // Integer.MAX_VALUE, which is still below goalPriority before a solution is found, so it is checked first
+            while (!open.isEmpty() && open.peekPriority() < goalPriority) {
+                if (nodesExpanded % SearchBudget.CHECK_INTERVAL == 0 || budget != null && budget.isDue(nodesExpanded)) {
+                    long memory = nodes.getMemoryUsage() + best.getMemoryUsage() + closed.getMemoryUsage()
+                            + open.getMemoryUsage();
+                    if (overMemoryLimit(memory)) {
+                        outOfMemory = true;
+                        break;
+                    }
+                    stopReason = System.nanoTime() > deadline ? "Out of time!" : budget == null ? null
+                            : budget.check(nodesExpanded, memory);
+                    if (stopReason != null) break;
+                }
+                if (open.size() > peakOpenSize) peakOpenSize = open.size();
+                int currNode = open.poll();
+                long state = nodes.state(currNode);
+                // Skip nodes whose state has been reached at a lower depth or expanded since they were queued
+                if (best.get(state) != currNode || closed.get(state) == search) continue;
+                closed.put(state, search);
+                nodesExpanded++;
+
+                int space = nodes.space(currNode);
+                int depth = nodes.depth(currNode);
+                for (int direction = PackedBoard.UP; direction <= PackedBoard.RIGHT; direction++) {
+                    int from = packedBoard.neighbour(space, direction);
+                    if (from < 0) continue;
+
+                    long next = PackedBoard.slide(state, space, from);
+                    int nextBest = best.get(next);
+                    if (nextBest != StateTable.NOT_FOUND && nodes.depth(nextBest) <= depth + 1) continue;
+
+                    int value = heuristic.update(nodes.heuristic(currNode), state, space, direction, next);
+                    int p = nodes.addChild(currNode, next, from, direction, value);
+                    if (p == NodeArena.NONE) {
+                        outOfMemory = true;
+                        break;
+                    }
+                    nodesGenerated++;
+                    best.put(next, p);
+                    if (packedBoard.isGoal(next) && (long) ARA_WEIGHT_SCALE * (depth + 1) < goalPriority) {
+                        goalNode = p;
+                        goalPriority = (long) ARA_WEIGHT_SCALE * (depth + 1);
+                    }
+
+                    if (closed.get(next) == search) {
+                        if (inconsistentSize == inconsistent.length) {
+                            inconsistent = Arrays.copyOf(inconsistent, inconsistentSize << 1);
+                        }
+                        inconsistent[inconsistentSize++] = p;
+                    } else {
+                        open.add(p, ARA_WEIGHT_SCALE * (depth + 1) + weight * value, depth + 1);
+                    }
+                }
+                if (outOfMemory) break;
+            }
+
+            if (goalNode == NodeArena.NONE) {
+                if (outOfMemory) return limitReached();
+                if (stopReason != null) {
+                    return stopped(stopReason, nodesExpanded, nodesGenerated, peakOpenSize, best.size(), start);
+                }
+                return new SolveResult(SolveResult.Status.UNSOLVABLE, "Unsolvable!");
+            }
+
+            // Collect the nodes still to be expanded, to bound the solution and to queue them for the next search
+            int[] pending = Arrays.copyOf(inconsistent, inconsistentSize + open.size());
+            int pendingSize = inconsistentSize;
+            while (!open.isEmpty()) {
+                int node = open.poll();
+                long state = nodes.state(node);
+                if (best.get(state) == node && closed.get(state) != search) pending[pendingSize++] = node;
+            }
+            inconsistentSize = 0;
+
+            int lowestEstimate = Integer.MAX_VALUE;
+            for (int i = 0; i < pendingSize; i++) {
+                int node = pending[i];
+                if (best.get(nodes.state(node)) != node) continue;
+                lowestEstimate = Math.min(lowestEstimate, nodes.depth(node) + nodes.heuristic(node));
+            }
+            int goalLength = nodes.depth(goalNode);
+            double searchBound = Math.max(1, (double) goalLength / lowestEstimate);
+            if (stopReason == null && !outOfMemory) searchBound = Math.min(searchBound, (double) weight / ARA_WEIGHT_SCALE);
+            bound = Math.min(bound, searchBound);
+            if (stopReason != null || outOfMemory || bound <= 1) break;
+
+            weight = Math.max(ARA_WEIGHT_SCALE, weight - ARA_WEIGHT_STEP);
+            for (int i = 0; i < pendingSize; i++) {
+                int node = pending[i];
+                if (best.get(nodes.state(node)) != node) continue;
+                open.add(node, ARA_WEIGHT_SCALE * nodes.depth(node) + weight * nodes.heuristic(node),
+                        nodes.depth(node));
+            }
         }
+
+        return new SolveResult(original, nodes.moves(goalNode), nodesExpanded, nodesGenerated, peakOpenSize,
+                best.size(), System.nanoTime() - start, bound);
+    }
+
+    /**
+     * Solves the puzzle using A* search spread over several threads (see HDAStarSearch). Finds an optimal
+     * solution, like A*, but may expand somewhat more nodes in total. The result also holds the number of nodes
+     * expanded by each thread and the estimated speedup over a single thread.
+     *
+     * @param threads - Number of worker threads
+     * @return The result, with an optimal solution if solved.
+     */
+    public SolveResult solveHDAStar (int threads) {
+        return withCache(() -> hdaStar(threads));
+    }
+
+    /**
+     * HDA* without the cache - see solveHDAStar().
+     *
+     * @param threads - Number of worker threads
+     * @return The result, with an optimal solution if solved.
+     */
+    private SolveResult hdaStar (int threads) {
+        SolveResult problem = checkCanSolve();
+        if (problem != null) return problem;
+
+        HDAStarSearch search = new HDAStarSearch(packedBoard, heuristic, threads);
+        search.setBudget(budget);
+        long start = System.nanoTime();
+        long state = packedBoard.pack(original);
+        byte[] moves;
+        try {
+            moves = search.search(state, packedBoard.spaceIndex(state));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new SolveResult(SolveResult.Status.FAILED, "Interrupted!");
+        }
+
+        long[] threadNodesExpanded = search.getNodesExpanded();
         long nodesExpanded = 0;
+        for (long expanded : threadNodesExpanded) nodesExpanded += expanded;
+        if (search.getStopReason() != null) {
+            return stopped(search.getStopReason(), nodesExpanded, search.getNodesGenerated(), search.getPeakOpenSize(),
+                    search.getPeakClosedSize(), start);
+        }
+        if (moves == null) return new SolveResult(SolveResult.Status.UNSOLVABLE, "Unsolvable!");
+        return new SolveResult(original, moves, nodesExpanded, search.getNodesGenerated(),
+                search.getPeakOpenSize(), search.getPeakClosedSize(), search.getElapsedNanos(),
+                threadNodesExpanded, search.getSpeedup());
+    }
 
-        Set<EightPuzzle> visited = new HashSet<>();
-        PriorityQueue<PuzzleNode> pq = new PriorityQueue<>(heuristicFunc);
-        Set<PuzzleNode> queueSet = new HashSet<>();
+    /**
+     * Solves the puzzle using IDA* search (iterative deepening on depth + heuristic).
+     *
+     * Runs a depth-first search bounded by the estimated solution length, raising the bound to the smallest
+     * estimate that exceeded it until the goal is found. Only the current state and the moves leading to it are
+     * kept, so memory use is proportional to the solution length - this is the mode to use for 15-puzzles, where
+     * the other modes run out of memory. It is also the only mode for boards too large to pack (e.g. 5x5).
+     *
+     * @return The result, with an optimal solution if solved. The peak open size is the length of the solution
+     * (the deepest path searched), and no states are recorded as closed.
+     */
+    public SolveResult solveIDAStar () {
+        return withCache(this::idaStar);
+    }
 
-        PuzzleNode currNode = new PuzzleNode(null, original);
-        pq.add(currNode);
-        queueSet.add(currNode);
+    /**
+     * IDA* without the cache - see solveIDAStar().
+     *
+     * @return The result, with an optimal solution if solved.
+     */
+    private SolveResult idaStar () {
+        if (packedBoard != null) {
+            SolveResult problem = checkCanSolve();
+            if (problem != null) return problem;
+        } else {
+            // Boards too large to pack are searched on an array of tiles, which only supports the Manhattan distance
+            if (!original.isSolvable()) return new SolveResult(SolveResult.Status.UNSOLVABLE, "Unsolvable!");
+            if (heuristic != null) {
+                return new SolveResult(SolveResult.Status.NOT_SUPPORTED, String.format(
+                        "Boards larger than %d cells only support the Manhattan distance!", PackedBoard.MAX_CELLS));
+            }
+        }
+        long start = System.nanoTime();
+
+        IDAStarSearch search = new IDAStarSearch(geometry, heuristic);
+        search.setBudget(budget);
+        byte[] moves = search.search(original);
+        if (moves == null) {
+            return stopped(search.getStopReason(), search.getNodesExpanded(), search.getNodesGenerated(), 0, 0, start);
+        }
+
+        return new SolveResult(original, moves, search.getNodesExpanded(), search.getNodesGenerated(),
+                moves.length, 0, System.nanoTime() - start);
+    }
+
+    /**
+     * Solves the puzzle by reading an optimal solution off a table of the distance of every state to the goal.
+     * This needs no search, so it is the fastest way to solve puzzles on boards small enough for a DistanceTable
+     * (e.g. 8-puzzles).
+     *
+     * @param table - Distance table for the puzzle's board size
+     * @return The result, with an optimal solution if solved. Each move counts as one expanded node.
+     */
+    public SolveResult solveWithTable (DistanceTable table) {
+        SolveResult problem = checkCanSolve();
+        if (problem != null) return problem;
+        if (!isBoardSize(table.getBoard())) {
+            return new SolveResult(SolveResult.Status.NOT_SUPPORTED, "Distance table is for a different board size!");
+        }
+        try {
+            table.load();
+        } catch (IOException e) {
+            return new SolveResult(SolveResult.Status.FAILED, "Could not load distance table: " + e.getMessage());
+        }
+        long start = System.nanoTime();
+
+        long state = packedBoard.pack(original);
+        byte[] moves = table.solve(state, packedBoard.spaceIndex(state));
+
+        return new SolveResult(original, moves, moves.length, 0, 0, 0, System.nanoTime() - start);
+    }
+
+    /**
+     * Runs a search mode through the cache - answering from the cache if the puzzle is on a cached path, and caching
+     * the solution found otherwise if it is optimal.
+     *
+     * @param search - The search mode, run if the puzzle is not cached
+     * @return The result from the cache (with no nodes expanded), or of the search.
+     */
+    private SolveResult withCache (Supplier<SolveResult> search) {
+        if (cache == null || packedBoard == null) return search.get();
+        if (!isBoardSize(cache.getBoard())) {
+            return new SolveResult(SolveResult.Status.NOT_SUPPORTED, "Solution cache is for a different board size!");
+        }
+
+        long start = System.nanoTime();
+        long state = packedBoard.pack(original);
+        byte[] moves = cache.get(state);
+        if (moves != null) return new SolveResult(original, moves, 0, 0, 0, 0, System.nanoTime() - start);
+
+        SolveResult result = search.get();
+        if (result.isSolved() && result.getSuboptimalityBound() == 1) {
+            moves = new byte[result.getMoveCount()];
+            for (int i = 0; i < moves.length; i++) moves[i] = (byte) result.getMove(i);
+            cache.put(state, moves);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the original puzzle can be solved by the solver, loading the heuristic's tables if needed.
+     *
+     * @return null if the puzzle can be solved, or the result to return if not.
+     */
+    private SolveResult checkCanSolve () {
+        if (!original.isSolvable()) return new SolveResult(SolveResult.Status.UNSOLVABLE, "Unsolvable!");
+        if (packedBoard == null) {
+            return new SolveResult(SolveResult.Status.NOT_SUPPORTED, String.format(
+                    "Boards larger than %d cells can only be solved with IDA*!", PackedBoard.MAX_CELLS));
+        }
+        if (!isBoardSize(heuristic.getBoard())) {
+            return new SolveResult(SolveResult.Status.NOT_SUPPORTED, "Heuristic is for a different board size!");
+        }
+        try {
+            heuristic.load();
+        } catch (IOException e) {
+            return new SolveResult(SolveResult.Status.FAILED, "Could not load heuristic tables: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * @param board - The board a table was built for
+     * @return Whether the board has the same size as the puzzle.
+     */
+    private boolean isBoardSize (BoardGeometry board) {
+        return board.width == geometry.width && board.height == geometry.height;
+    }
+
+    /**
+     * Solver function that orders the open list by (depthWeight * depth + heuristicWeight * heuristic) of each
+     * node, breaking ties in favour of deeper nodes when the depth is weighted:
+     *   - BFS uses (1, 0)
+     *   - Greedy uses (0, 1)
+     *   - A* uses (1, 1)
+     *
+     * The search runs on packed states (see PackedBoard), and nodes are stored in a NodeArena, so expanding a node
+     * only appends a few primitives for each successor, rather than copying the whole board for each one. Each
+     * node's heuristic is computed once when it is created, by updating its parent's value (see Heuristic.update),
+     * and since priorities are small integers the open list is a BucketQueue of node handles rather than a binary
+     * heap.
+     *
+     * Open and closed states are tracked in a single StateTable, holding the lowest depth a state has been queued
+     * at (or CLOSED once expanded). A state is only queued again if it is reached at a lower depth, and outdated
+     * queue entries are skipped when polled.
+     *
+     * @param depthWeight - weight of the depth in a node's priority
+     * @param heuristicWeight - weight of the heuristic in a node's priority (0 skips computing the heuristic)
+     * @return The result of the search.
+     */
+    private SolveResult solveWithHeuristic (int depthWeight, int heuristicWeight) {
+        SolveResult problem = checkCanSolve();
+        if (problem != null) return problem;
+        long start = System.nanoTime();
+        long nodesExpanded = 0, nodesGenerated = 0, peakOpenSize = 0;
+
+        StateTable seen = new StateTable();
+        BucketQueue pq = new BucketQueue();
+        NodeArena nodes = newArena(offHeapLimit);
+        boolean useHeuristic = heuristicWeight != 0;
+
+        long originalState = packedBoard.pack(original);
+        int currNode = nodes.addRoot(originalState, packedBoard.spaceIndex(originalState),
+                useHeuristic ? heuristic.evaluate(originalState) : 0);
+        pq.add(currNode, heuristicWeight * nodes.heuristic(currNode), 0);
+        seen.put(originalState, 0);
 
         while (!pq.isEmpty()) {
+            if (pq.size() > peakOpenSize) peakOpenSize = pq.size();
             currNode = pq.poll();
-            queueSet.remove(currNode);
-            nodesExpanded++;
+            long state = nodes.state(currNode);
+            int space = nodes.space(currNode);
+            int depth = nodes.depth(currNode);
 
-            if (currNode.current.isSolved()) break;
+            // Skip states that were expanded or queued at a lower depth after this node was queued
+            int seenDepth = seen.get(state);
+            if (seenDepth == CLOSED || seenDepth < depth) continue;
+            seen.put(state, CLOSED);
+            nodesExpanded++;
 
-            List<EightPuzzle> possibleMoves = currNode.current.generatePossibleMoves();
-            for (EightPuzzle e: possibleMoves) {
-                PuzzleNode p = new PuzzleNode(currNode, e);
-                if (!visited.contains(e) && !queueSet.contains(p)) {
-                    pq.add(p);
-                    queueSet.add(p);
+            if (packedBoard.isGoal(state)) break;
+            if (nodesExpanded % SearchBudget.CHECK_INTERVAL == 0 || budget != null && budget.isDue(nodesExpanded)) {
+                long memory = nodes.getMemoryUsage() + seen.getMemoryUsage() + pq.getMemoryUsage();
+                if (overMemoryLimit(memory)) return limitReached();
+                String reason = budget == null ? null : budget.check(nodesExpanded, memory);
+                if (reason != null) {
+                    return stopped(reason, nodesExpanded, nodesGenerated, peakOpenSize, seen.size(), start);
                 }
             }
 
-            visited.add(currNode.current);
-        }
+            // Same move order as EightPuzzle.generatePossibleMoves() - up, down, left, right
+            for (int direction = PackedBoard.UP; direction <= PackedBoard.RIGHT; direction++) {
+                int from = packedBoard.neighbour(space, direction);
+                if (from < 0) continue;
 
-        if (currNode.current.isSolved()) {
-            System.out.println("Solved!");
+                long next = PackedBoard.slide(state, space, from);
+                int nextSeen = seen.get(next);
+                if (nextSeen == CLOSED) continue;
+                if (nextSeen != StateTable.NOT_FOUND && nextSeen <= depth + 1) continue;
 
-            Deque<EightPuzzle> pathStack = generatePath(currNode);
-            printSolution(pathStack);
+                int value = useHeuristic ? heuristic.update(nodes.heuristic(currNode), state, space, direction, next) : 0;
+                int p = nodes.addChild(currNode, next, from, direction, value);
+                if (p == NodeArena.NONE) return limitReached();
+                nodesGenerated++;
+                // Ties are only broken on depth when it is part of the priority, as greedy search would otherwise
+                // favour longer paths
+                pq.add(p, depthWeight * (depth + 1) + heuristicWeight * value, depthWeight * (depth + 1));
+                seen.put(next, depth + 1);
+            }
+        }
 
-            System.out.println(String.format("Expanded %d nodes.", nodesExpanded));
-            System.out.println(String.format("Requires %d moves.", pathStack.size() - 1));
-            return true;
+        if (!packedBoard.isGoal(nodes.state(currNode))) {
+            return new SolveResult(SolveResult.Status.UNSOLVABLE, "Unsolvable!");
         }
 
-        return false;
+        // Greedy search ignores the depth, so its solutions can be any length
+        return new SolveResult(original, nodes.moves(currNode), nodesExpanded, nodesGenerated, peakOpenSize,
+                seen.size(), System.nanoTime() - start, depthWeight == 0 ? Double.POSITIVE_INFINITY : 1);
     }
 
     /**
-     * Generates a Deque representing the solution path. Traverses through
-     * each PuzzleNode's parent until the null parent is reached (root node).
-     *
-     * @param lastNode - the last PuzzleNode returned by the solver.
-     * @return A Deque representing the solution path.
+     * @param maxBytes - Largest number of bytes of direct memory for the nodes, or 0 to keep them on the heap
+     * @return An empty NodeArena for a search.
      */
-    private Deque<EightPuzzle> generatePath (PuzzleNode lastNode) {
-        PuzzleNode currNode = lastNode;
-        Deque<EightPuzzle> pathStack = new ArrayDeque<>();
-        pathStack.add(currNode.current);
+    private static NodeArena newArena (long maxBytes) {
+        return maxBytes > 0 ? new OffHeapNodeArena(maxBytes) : new NodeArena();
+    }
 
-        while (currNode.parent != null) {
-            currNode = currNode.parent;
-            pathStack.addFirst(currNode.current);
-        }
+    /**
+     * @param memoryBytes - Estimated number of bytes used by a search's nodes, tables and open list
+     * @return Whether the search has gone over the off-heap limit (never if there is none).
+     */
+    private boolean overMemoryLimit (long memoryBytes) {
+        return offHeapLimit > 0 && memoryBytes > offHeapLimit;
+    }
+
+    /**
+     * @return The result of a search that ran out of room for nodes, or went over the off-heap limit.
+     */
+    private SolveResult limitReached () {
+        return new SolveResult(SolveResult.Status.LIMIT_REACHED,
+                String.format("Memory limit of %d MB reached!", offHeapLimit >> 20));
+    }
 
-        return pathStack;
+    /**
+     * Builds the result of a search that stopped because its budget ran out.
+     *
+     * @param reason - Why the search stopped, from SearchBudget.check()
+     * @param nodesExpanded - Number of nodes expanded before stopping
+     * @param nodesGenerated - Number of nodes generated before stopping
+     * @param peakOpenSize - Largest number of nodes waiting to be expanded at once
+     * @param peakClosedSize - Largest number of states recorded as seen at once
+     * @param start - System.nanoTime() when the search started
+     * @return The result, CANCELLED if the budget was cancelled or LIMIT_REACHED otherwise.
+     */
+    private SolveResult stopped (String reason, long nodesExpanded, long nodesGenerated, long peakOpenSize,
+                                 long peakClosedSize, long start) {
+        SolveResult.Status status = budget != null && budget.isCancelled()
+                ? SolveResult.Status.CANCELLED : SolveResult.Status.LIMIT_REACHED;
+        return new SolveResult(status, reason, nodesExpanded, nodesGenerated, peakOpenSize, peakClosedSize,
+                System.nanoTime() - start);
     }
 
     /**
-     * Given a Deque representing the solution path, prints out each step.
+     * Generates the moves of the solution path of a bidirectional search, by joining the path from the original
+     * board to the meeting state with the path from the meeting state to the goal. Both nodes must hold the meeting
+     * state.
      *
-     * @param path - a Deque representing the solution path.
+     * @param forward - the nodes of the search from the original board.
+     * @param forwardNode - the meeting node of the search from the original board.
+     * @param backward - the nodes of the search from the goal.
+     * @param backwardNode - the meeting node of the search from the goal.
+     * @return The directions the space moves in, one per move.
      */
-    private void printSolution (Deque<EightPuzzle> path) {
-        for (EightPuzzle e: path) {
-            System.out.println("Move:");
-            System.out.println(e);
-            System.out.println();
+    private byte[] generateMoves (NodeArena forward, int forwardNode, NodeArena backward, int backwardNode) {
+        int forwardDepth = forward.depth(forwardNode);
+        byte[] moves = Arrays.copyOf(forward.moves(forwardNode), forwardDepth + backward.depth(backwardNode));
+
+        // The backward search's parents lead towards the goal, undoing the moves that led away from it
+        int i = forwardDepth;
+        for (int currNode = backwardNode; backward.parent(currNode) != NodeArena.NONE;
+             currNode = backward.parent(currNode)) {
+            moves[i++] = (byte) (backward.move(currNode) ^ 1);
         }
+        return moves;
     }
 }
@@ -0,0 +1,99 @@
+package me.leagueofcake.eight_puzzle;
+
+/**
+ * StateRanker class - a perfect ranking of the solvable states of a board with up to 16 cells.
+ *
+ * Every solvable packed state is mapped to a unique index between 0 and size() - 1, and back, without gaps. This lets
+ * tables hold one entry per state in a flat array instead of a hash table.
+ *
+ * The index of a state is (rank * cells + space), where rank is the lexicographic (Lehmer code) rank of the numbers
+ * in cell order with the space left out. Swapping the last two numbers changes only the lowest Lehmer digit, and
+ * changes whether the board is solvable - so for a given space cell, exactly one of each pair of ranks 2m and 2m + 1
+ * is solvable, and m is used as the rank. This gives cells! / 2 indices, the number of solvable states.
+ */
+public class StateRanker {
+    private final PackedBoard board;
+    private final int tiles;
+
+    /**
+     * Constructs a ranker for the given board size.
+     *
+     * @param board - The board size
+     */
+    public StateRanker (PackedBoard board) {
+        if (board.cells < 3) throw new IllegalArgumentException("Boards must have at least 3 cells to be ranked");
+        this.board = board;
+        this.tiles = board.cells - 1;
+    }
+
+    /**
+     * @return The number of solvable states (cells! / 2), which is one more than the highest index.
+     */
+    public long size () {
+        long size = board.cells;
+        for (int i = tiles; i > 2; i--) size *= i;
+        return size;
+    }
+
+    /**
+     * Ranks a solvable state.
+     *
+     * @param state - The packed state, which must be solvable
+     * @param space - The cell index of the space in the state
+     * @return The index of the state, between 0 and size() - 1.
+     */
+    public long rank (long state, int space) {
+        long rank = 0;
+        int seen = 0, i = 0;
+        for (int cell = 0; cell < board.cells && i < tiles - 2; cell++) {
+            if (cell == space) continue;
+            int num = PackedBoard.tile(state, cell);
+
+            // Lehmer digit - how many of the numbers after this one are smaller
+            int digit = num - 1 - Integer.bitCount(seen & ((1 << num) - 1));
+            rank = rank * (tiles - i) + digit;
+            seen |= 1 << num;
+            i++;
+        }
+        return rank * board.cells + space;
+    }
+
+    /**
+     * Converts an index back to the solvable state it ranks.
+     *
+     * @param index - The index of the state, between 0 and size() - 1
+     * @return The packed state. The space is in cell (index % cells).
+     */
+    public long unrank (long index) {
+        int space = (int) (index % board.cells);
+        long rank = index / board.cells;
+
+        // Lehmer digits of all but the last two numbers, packed 4 bits per digit
+        long digits = 0;
+        int inversions = 0;
+        for (int i = tiles - 3; i >= 0; i--) {
+            int digit = (int) (rank % (tiles - i));
+            rank /= tiles - i;
+            digits |= (long) digit << (i << 2);
+            inversions += digit;
+        }
+
+        // The second last digit (0 or 1) is whichever makes the state solvable - the last digit is always 0
+        if (board.width % 2 == 0) inversions += board.height - 1 - space / board.width;
+        digits |= (long) (inversions & 1) << ((tiles - 2) << 2);
+
+        long state = 0;
+        int unused = ((1 << tiles) - 1) << 1; // Bits 1 to tiles are set
+        int cell = 0;
+        for (int i = 0; i < tiles; i++, cell++) {
+            if (cell == space) cell++;
+            // Pick the digit-th smallest unused number
+            int remaining = unused;
+            for (int j = (int) (digits >>> (i << 2)) & 0xF; j > 0; j--) remaining &= remaining - 1;
+            int num = Integer.numberOfTrailingZeros(remaining);
+            unused &= ~(1 << num);
+            state |= (long) num << (cell << 2);
+        }
+        return state;
+    }
+}
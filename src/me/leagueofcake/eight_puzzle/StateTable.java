@@ -0,0 +1,181 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.util.Arrays;
+
+/**
+ * StateTable class - an open-addressing hash table mapping packed states (see PackedBoard) to int values.
+ *
+ * Keys and values are kept in two parallel primitive arrays and probed linearly, so a lookup never boxes the state
+ * and takes O(1) probes on average. Each entry costs 12 bytes of table space, and the table doubles in size once it
+ * is two thirds full.
+ *
+ * A key of 0 marks an empty slot in the arrays, so an entry for key 0 is stored separately. Removed entries are
+ * filled by shifting back the entries probed after them (see remove()).
+ */
+public class StateTable {
+    public static final int NOT_FOUND = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    /**
+     * Constructs an empty StateTable with a default initial capacity.
+     */
+    public StateTable () {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty StateTable which can hold expectedSize entries before growing.
+     *
+     * @param expectedSize - Number of entries expected to be added
+     */
+    public StateTable (int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 2 / 3 < expectedSize) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Helper function to allocate empty key and value arrays of the given capacity (a power of two).
+     *
+     * @param capacity - Number of slots in the table
+     */
+    private void allocate (int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Helper function to find the slot a key should be probed from.
+     *
+     * @param key - The key to be looked up
+     * @return The index of the first slot to probe.
+     */
+    private int slot (long key) {
+        return (int) PackedBoard.hash(key) & mask;
+    }
+
+    /**
+     * @param key - The key to be looked up
+     * @return The value stored for the key, or NOT_FOUND if the key is not in the table.
+     */
+    public int get (long key) {
+        if (key == 0) return hasZeroKey ? zeroValue : NOT_FOUND;
+
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) return values[i];
+            if (k == 0) return NOT_FOUND;
+        }
+    }
+
+    /**
+     * Stores a value for the key, replacing any existing value.
+     *
+     * @param key - The key to be stored
+     * @param value - The value to be stored for the key
+     */
+    public void put (long key, int value) {
+        if (key == 0) {
+            if (!hasZeroKey) size++;
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+
+        int i = slot(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 3 > keys.length * 2) grow();
+    }
+
+    /**
+     * Removes the entry for a key, if there is one.
+     *
+     * Later entries in the same run of probed slots are shifted back into the freed slot where their probe sequence
+     * allows, so no tombstones are needed and lookups stay as fast as before.
+     *
+     * @param key - The key to be removed
+     */
+    public void remove (long key) {
+        if (key == 0) {
+            if (hasZeroKey) size--;
+            hasZeroKey = false;
+            return;
+        }
+
+        int i = slot(key);
+        while (keys[i] != key) {
+            if (keys[i] == 0) return;
+            i = (i + 1) & mask;
+        }
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            // The entry in slot j may fill the gap at i if i lies between its home slot and j
+            if (((j - slot(keys[j])) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        size--;
+    }
+
+    /**
+     * Helper function to double the capacity of the table, re-inserting every entry.
+     */
+    private void grow () {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key == 0) continue;
+
+            int i = slot(key);
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+
+    /**
+     * @return The number of entries in the table.
+     */
+    public int size () {
+        return size;
+    }
+
+    /**
+     * @return The number of bytes allocated for the key and value arrays.
+     */
+    public long getMemoryUsage () {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * Removes every entry, keeping the current capacity so the table can be reused without reallocating.
+     */
+    public void clear () {
+        Arrays.fill(keys, 0);
+        size = 0;
+        hasZeroKey = false;
+    }
+}
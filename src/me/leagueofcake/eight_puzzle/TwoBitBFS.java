@@ -0,0 +1,277 @@
+package me.leagueofcake.eight_puzzle;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * TwoBitBFS class - a parallel breadth-first sweep of every solvable state of a board, using 2 bits of memory per
+ * state (e.g. 45 KB for the 8-puzzle, or 60 MB for the 239,500,800 states of the 4x3 board).
+ *
+ * States are indexed by StateRanker, and the array holds one of four marks per state - UNSEEN, CURRENT (in the layer
+ * being expanded), NEXT (in the layer being generated) or DONE. Each layer is expanded by splitting the array into
+ * chunks which the worker threads scan for CURRENT states, unranking them and marking any UNSEEN successors as NEXT.
+ * Marks are set with a compare-and-set on the word holding them, so threads never need a lock and no state is
+ * counted twice. A second parallel pass then turns CURRENT into DONE and NEXT into CURRENT, counting the new layer.
+ *
+ * If a table of one byte per state is given, the distance of every state is written into it as its layer is found,
+ * which is how DistanceTable builds its tables.
+ *
+ * Boards have 3 to MAX_CELLS cells - the 13 cells of the next size up would already need 778 MB, and 2x7 boards
+ * 10.9 GB.
+ *
+ * Usage: TwoBitBFS [-size WIDTHxHEIGHT] [-threads N]
+ * The size defaults to 3x3 and the threads to one per core.
+ */
+public class TwoBitBFS {
+    // Largest number of cells on a board that can be swept (e.g. 4x3)
+    public static final int MAX_CELLS = 12;
+
+    private static final long UNSEEN = 0;
+    private static final long CURRENT = 1;
+    private static final long NEXT = 2;
+    private static final long DONE = 3;
+
+    // Words (of 32 states) scanned by one task
+    private static final int CHUNK_WORDS = 1 << 12;
+
+    private final PackedBoard board;
+    private final StateRanker ranker;
+    private final int threads;
+    private final long size;
+    private AtomicLongArray marks;
+
+    /**
+     * Constructs a sweep of the given board size. The array is not allocated until run() is called.
+     *
+     * @param board - The board size, with 3 to MAX_CELLS cells
+     * @param threads - Number of worker threads
+     */
+    public TwoBitBFS (PackedBoard board, int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("At least one thread is needed");
+        if (board.cells > MAX_CELLS) {
+            throw new IllegalArgumentException(String.format("A %dx%d board has too many states to sweep",
+                    board.width, board.height));
+        }
+        this.board = board;
+        this.ranker = new StateRanker(board);
+        this.threads = threads;
+        this.size = ranker.size();
+    }
+
+    /**
+     * Returns the number of states the array holds a mark for - every state with the goal's parity (see StateRanker).
+     * On boards with at least two rows and two columns these are exactly the states the sweep reaches, but on 1xN
+     * (and Nx1) boards the numbers cannot pass each other, so only N of them are reached.
+     *
+     * @return The number of states ranked by StateRanker.
+     */
+    public long size () {
+        return size;
+    }
+
+    /**
+     * Runs the sweep from the goal state.
+     *
+     * @param distances - Table of size() bytes to fill with the distance of each state (indexed by StateRanker), or
+     *                    null to only count the states
+     * @return The number of states at each distance from the goal (the last distance is the radius of the board).
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public long[] run (byte[] distances) throws InterruptedException {
+        if (distances != null && distances.length != size) {
+            throw new IllegalArgumentException("The distance table must have one entry per state");
+        }
+
+        marks = new AtomicLongArray((int) ((size + 31) >>> 5));
+        long goal = ranker.rank(board.goal(), board.cells - 1);
+        set(goal, CURRENT);
+        if (distances != null) distances[(int) goal] = 0;
+
+        List<Long> layerSizes = new ArrayList<>();
+        layerSizes.add(1L);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            int chunks = (marks.length() + CHUNK_WORDS - 1) / CHUNK_WORDS;
+            List<Future<Long>> results = new ArrayList<>(chunks);
+            for (int depth = 1; ; depth++) {
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    int c = chunk;
+                    results.add(pool.submit(() -> expand(c)));
+                }
+                sum(results);
+
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    int c = chunk, d = depth;
+                    results.add(pool.submit(() -> advance(c, distances, d)));
+                }
+                long layerSize = sum(results);
+                if (layerSize == 0) break;
+                layerSizes.add(layerSize);
+            }
+        } finally {
+            pool.shutdownNow();
+            marks = null;
+        }
+
+        long[] sizes = new long[layerSizes.size()];
+        for (int depth = 0; depth < sizes.length; depth++) sizes[depth] = layerSizes.get(depth);
+        return sizes;
+    }
+
+    /**
+     * Helper function waiting for the tasks of a pass and adding up their results.
+     *
+     * @param results - The pending results, which are removed
+     * @return The sum of the results.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    private static long sum (List<Future<Long>> results) throws InterruptedException {
+        long total = 0;
+        try {
+            for (Future<Long> result : results) total += result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A sweep worker failed", e.getCause());
+        }
+        results.clear();
+        return total;
+    }
+
+    /**
+     * Expands the CURRENT states of one chunk, marking their UNSEEN successors as NEXT.
+     *
+     * @param chunk - Index of the chunk
+     * @return The number of states expanded.
+     */
+    private long expand (int chunk) {
+        long expanded = 0;
+        int end = Math.min(marks.length(), (chunk + 1) * CHUNK_WORDS);
+        for (int word = chunk * CHUNK_WORDS; word < end; word++) {
+            long bits = marks.get(word);
+            // Low bit set and high bit clear - the CURRENT marks in the word
+            long current = bits & ~(bits >>> 1) & 0x5555555555555555L;
+            for (; current != 0; current &= current - 1) {
+                long index = ((long) word << 5) + (Long.numberOfTrailingZeros(current) >>> 1);
+                long state = ranker.unrank(index);
+                int space = (int) (index % board.cells);
+                for (int direction = PackedBoard.UP; direction <= PackedBoard.RIGHT; direction++) {
+                    int from = board.neighbour(space, direction);
+                    if (from < 0) continue;
+                    mark(ranker.rank(PackedBoard.slide(state, space, from), from));
+                }
+                expanded++;
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * Ends a layer for one chunk, turning CURRENT marks into DONE and NEXT marks into CURRENT.
+     *
+     * @param chunk - Index of the chunk
+     * @param distances - Table to record the distance of the new CURRENT states in, or null
+     * @param depth - Distance of the layer that was generated
+     * @return The number of states in the new layer within the chunk.
+     */
+    private long advance (int chunk, byte[] distances, int depth) {
+        long count = 0;
+        int end = Math.min(marks.length(), (chunk + 1) * CHUNK_WORDS);
+        for (int word = chunk * CHUNK_WORDS; word < end; word++) {
+            long bits = marks.get(word);
+            if (bits == 0) continue;
+
+            long low = bits & 0x5555555555555555L;
+            long high = (bits >>> 1) & 0x5555555555555555L;
+            long current = low & ~high;
+            long next = high & ~low; // Low bit of each NEXT mark
+            // CURRENT (01) becomes DONE (11) and NEXT (10) becomes CURRENT (01)
+            marks.set(word, (bits | next | (current << 1)) & ~(next << 1));
+            count += Long.bitCount(next);
+
+            if (distances != null) {
+                for (; next != 0; next &= next - 1) {
+                    distances[(word << 5) + (Long.numberOfTrailingZeros(next) >>> 1)] = (byte) depth;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Marks a state as NEXT if it is UNSEEN.
+     *
+     * @param index - The index of the state
+     */
+    private void mark (long index) {
+        int word = (int) (index >>> 5);
+        int shift = (int) (index & 31) << 1;
+        long bits;
+        do {
+            bits = marks.get(word);
+            if (((bits >>> shift) & 3) != UNSEEN) return;
+        } while (!marks.compareAndSet(word, bits, bits | (NEXT << shift)));
+    }
+
+    /**
+     * Sets the mark of a state, without synchronisation.
+     *
+     * @param index - The index of the state
+     * @param mark - The new mark
+     */
+    private void set (long index, long mark) {
+        int word = (int) (index >>> 5);
+        int shift = (int) (index & 31) << 1;
+        marks.set(word, (marks.get(word) & ~(3L << shift)) | (mark << shift));
+    }
+
+    /**
+     * Runs a sweep from the command line - see the class description for the arguments.
+     *
+     * @param args - Command-line arguments
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public static void main (String[] args) throws InterruptedException {
+        int width = EightPuzzle.DEFAULT_WIDTH, height = EightPuzzle.DEFAULT_HEIGHT;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-size":
+                    String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: TwoBitBFS [-size WIDTHxHEIGHT] [-threads N]");
+                    return;
+            }
+        }
+
+        if (width <= 0 || height <= 0 || (long) width * height < 3 || (long) width * height > MAX_CELLS) {
+            System.err.println(String.format("Error: the sweep needs a board of 3 to %d cells.", MAX_CELLS));
+            return;
+        }
+        if (threads <= 0) {
+            System.err.println("Error: at least one thread is needed.");
+            return;
+        }
+        TwoBitBFS sweep = new TwoBitBFS((PackedBoard) BoardGeometry.of(width, height), threads);
+        long start = System.nanoTime();
+        long[] sizes = sweep.run(null);
+        long elapsed = System.nanoTime() - start;
+
+        long reached = 0;
+        for (int depth = 0; depth < sizes.length; depth++) {
+            System.out.println(String.format("Depth %d: %d states", depth, sizes[depth]));
+            reached += sizes[depth];
+        }
+        System.out.println(String.format("%d states, radius %d, in %d ms on %d threads (%.0f states/s, %d KB).",
+                reached, sizes.length - 1, elapsed / 1000000, threads, reached * 1e9 / Math.max(elapsed, 1),
+                ((sweep.size() + 31) >>> 5) * Long.BYTES / 1024));
+    }
+}
@@ -0,0 +1,202 @@
+package me.leagueofcake.sudoku;
+
+/**
+ * BoardLayout class - lookup tables for one board size, shared by every board of that size.
+ *
+ * A board with boxes of boxSize x boxSize spaces is boxSize^2 (size) spaces wide, and holds the numbers 1 to size.
+ * Spaces are indexed row * size + col. The row, column and box of each space are kept in tables, so the hot paths of
+ * the Solver and the Techniques never divide by the (runtime) board size, and each size gets its own tables rather
+ * than one set sized for the largest board.
+ *
+ * Numbers are kept as bits 1 to size of an int, so boxes are at most MAX_BOX_SIZE wide (25x25 boards). Numbers are
+ * written with the symbols '1' - '9' followed by 'A' - 'P' (10 - 25), so 9x9 boards are written as before.
+ *
+ * Layouts are built the first time a size is used, and are immutable.
+ */
+public class BoardLayout {
+    public static final int MAX_BOX_SIZE = 5;
+    public static final int MAX_SIZE = MAX_BOX_SIZE * MAX_BOX_SIZE;
+    private static final String SYMBOLS = "123456789ABCDEFGHIJKLMNOP";
+    private static final BoardLayout[] LAYOUTS = new BoardLayout[MAX_BOX_SIZE + 1];
+
+    private final int boxSize;
+    private final int size;
+    private final int allNumbers;
+    // Spaces of each unit - the rows, then the columns, then the boxes
+    private final int[][] units;
+    private final int[] rowOf;
+    private final int[] colOf;
+    private final int[] boxOf;
+    // Shared Point for each space, so guesses do not allocate them
+    private final Point[] points;
+
+    /**
+     * Builds the tables for one board size.
+     *
+     * @param boxSize - The width of a box
+     */
+    private BoardLayout (int boxSize) {
+        this.boxSize = boxSize;
+        this.size = boxSize * boxSize;
+        this.allNumbers = ((1 << size) - 1) << 1;
+        units = new int[3 * size][size];
+        rowOf = new int[size * size];
+        colOf = new int[size * size];
+        boxOf = new int[size * size];
+        points = new Point[size * size];
+        for (int cell = 0; cell < size * size; cell++) {
+            int row = cell / size, col = cell % size, box = boxSize * (row / boxSize) + col / boxSize;
+            rowOf[cell] = row;
+            colOf[cell] = col;
+            boxOf[cell] = box;
+            points[cell] = new Point((byte) row, (byte) col);
+            units[row][col] = cell;
+            units[size + col][row] = cell;
+            units[2 * size + box][boxSize * (row % boxSize) + col % boxSize] = cell;
+        }
+    }
+
+    /**
+     * Returns the layout for a board size, building it if it has not been used yet.
+     *
+     * @param boxSize - The width of a box (3 for 9x9 boards, 4 for 16x16, 5 for 25x25)
+     * @return The layout.
+     */
+    public static synchronized BoardLayout of (int boxSize) {
+        if (boxSize < 1 || boxSize > MAX_BOX_SIZE) {
+            throw new IllegalArgumentException("The box size must be from 1 to " + MAX_BOX_SIZE);
+        }
+        if (LAYOUTS[boxSize] == null) LAYOUTS[boxSize] = new BoardLayout(boxSize);
+        return LAYOUTS[boxSize];
+    }
+
+    /**
+     * Returns the layout for boards of the given width.
+     *
+     * @param size - The width of the board, which must be a square (e.g. 9, 16 or 25)
+     * @return The layout.
+     */
+    public static BoardLayout ofSize (int size) {
+        int boxSize = (int) Math.round(Math.sqrt(size));
+        if (boxSize * boxSize != size) throw new IllegalArgumentException("The board width must be a square: " + size);
+        return of(boxSize);
+    }
+
+    /**
+     * @param number - A number from 1 to 25
+     * @return The symbol the number is written with.
+     */
+    public static char toSymbol (int number) {
+        return SYMBOLS.charAt(number - 1);
+    }
+
+    /**
+     * @param symbol - A symbol ('1' - '9' or 'A' - 'P', in either case)
+     * @return The number written by the symbol, or 0 if it is not a symbol.
+     */
+    public static int toNumber (char symbol) {
+        return SYMBOLS.indexOf(Character.toUpperCase(symbol)) + 1;
+    }
+
+    /**
+     * @return The width of a box.
+     */
+    public int getBoxSize () {
+        return boxSize;
+    }
+
+    /**
+     * @return The width of the board, and the largest number.
+     */
+    public int getSize () {
+        return size;
+    }
+
+    /**
+     * @return The number of spaces on the board.
+     */
+    public int getCellCount () {
+        return size * size;
+    }
+
+    /**
+     * @return A bitmask with bits 1 to getSize() set, one per number.
+     */
+    public int getAllNumbers () {
+        return allNumbers;
+    }
+
+    /**
+     * @return The number of units (rows, columns and boxes).
+     */
+    public int getUnitCount () {
+        return units.length;
+    }
+
+    /**
+     * @return The index of the first column in the units.
+     */
+    public int getFirstColumnUnit () {
+        return size;
+    }
+
+    /**
+     * @return The index of the first box in the units.
+     */
+    public int getFirstBoxUnit () {
+        return 2 * size;
+    }
+
+    /**
+     * Returns the spaces of a unit. The array is shared and must not be changed.
+     *
+     * @param unit - The index of the unit - rows first, then columns, then boxes
+     * @return The indices of the spaces in the unit.
+     */
+    public int[] getUnit (int unit) {
+        return units[unit];
+    }
+
+    /**
+     * @param unit - The index of a unit
+     * @param cell - The index of a space
+     * @return Whether the unit contains the space.
+     */
+    public boolean contains (int unit, int cell) {
+        if (unit < size) return rowOf[cell] == unit;
+        if (unit < 2 * size) return colOf[cell] == unit - size;
+        return boxOf[cell] == unit - 2 * size;
+    }
+
+    /**
+     * @param cell - The index of a space
+     * @return The row of the space.
+     */
+    public int row (int cell) {
+        return rowOf[cell];
+    }
+
+    /**
+     * @param cell - The index of a space
+     * @return The column of the space.
+     */
+    public int col (int cell) {
+        return colOf[cell];
+    }
+
+    /**
+     * @param cell - The index of a space
+     * @return The box of the space, numbered across then down.
+     */
+    public int box (int cell) {
+        return boxOf[cell];
+    }
+
+    /**
+     * @param cell - The index of a space
+     * @return The shared Point for the space.
+     */
+    public Point point (int cell) {
+        return points[cell];
+    }
+}
@@ -0,0 +1,298 @@
+package me.leagueofcake.sudoku;
+
+/**
+ * DancingLinks class - solves Sudoku as an exact cover problem with Knuth's Algorithm X, using dancing links.
+ *
+ * Each of the 4 * size^2 columns (324 for a 9x9 board) is a constraint that must be met exactly once - every space
+ * holds one number, and every row, column and box holds each number once. Each of the size^3 rows (729) places one
+ * number in one space, and covers one column of each kind (4 in all). The clues are placed first, and the search then
+ * repeatedly picks the column with the fewest rows left, trying each of its rows in turn.
+ *
+ * The links are kept in preallocated int arrays (one entry per node) rather than node objects. A copy of the
+ * initial links is kept, and every solve starts by copying it back, so one instance can solve many boards of its size
+ * and the search itself allocates nothing. Instances are not thread-safe - use one per thread.
+ */
+public class DancingLinks {
+    private static final int ROOT = 0;
+
+    private final int n; // Width of the boards solved
+    private final int columns;
+    // Nodes 1 to columns are the column headers, followed by 4 nodes for each row
+    private final int nodes;
+
+    // Initial links, copied into the working arrays before each solve
+    private final int[] initialLeft, initialRight;
+    private final int[] initialUp, initialDown;
+    private final int[] initialSizes;
+
+    private final int[] left, right;
+    private final int[] up, down;
+    private final int[] sizes;
+    private final int[] column; // Header of each node's column
+    private final int[] row;    // Row of each node, (space * n + number - 1)
+
+    // Rows chosen on the current path, and the first solution found
+    private final int[] chosen;
+    private final int[] solution;
+    private int solutionSize;
+
+    private SearchBudget budget;
+    private String stopReason;
+    private long limit;
+    private long solutions;
+    private long guesses;
+    private long backtracks;
+
+    /**
+     * Constructs the links for an empty 9x9 board.
+     */
+    public DancingLinks () {
+        this(3);
+    }
+
+    /**
+     * Constructs the links for an empty board of the given size.
+     *
+     * @param boxSize - The width of a box (3 for 9x9 boards, 4 for 16x16, 5 for 25x25)
+     */
+    public DancingLinks (int boxSize) {
+        BoardLayout layout = BoardLayout.of(boxSize);
+        n = layout.getSize();
+        columns = 4 * n * n;
+        int rows = n * n * n;
+        nodes = 1 + columns + 4 * rows;
+        initialLeft = new int[nodes];
+        initialRight = new int[nodes];
+        initialUp = new int[nodes];
+        initialDown = new int[nodes];
+        initialSizes = new int[columns + 1];
+        left = new int[nodes];
+        right = new int[nodes];
+        up = new int[nodes];
+        down = new int[nodes];
+        sizes = new int[columns + 1];
+        column = new int[nodes];
+        row = new int[nodes];
+        chosen = new int[n * n];
+        solution = new int[n * n];
+
+        // Column headers in a circular list through the root
+        for (int c = 0; c <= columns; c++) {
+            initialLeft[c] = c == 0 ? columns : c - 1;
+            initialRight[c] = c == columns ? 0 : c + 1;
+            initialUp[c] = c;
+            initialDown[c] = c;
+        }
+
+        int node = columns + 1;
+        for (int r = 0; r < rows; r++) {
+            int space = r / n, number = r % n;
+            int[] headers = {
+                    1 + space,                                      // The space holds a number
+                    1 + n * n + layout.row(space) * n + number,     // The row holds the number
+                    1 + 2 * n * n + layout.col(space) * n + number, // The column holds the number
+                    1 + 3 * n * n + layout.box(space) * n + number  // The box holds the number
+            };
+            for (int i = 0; i < 4; i++) {
+                int c = headers[i];
+                column[node + i] = c;
+                row[node + i] = r;
+                initialLeft[node + i] = node + (i + 3) % 4;
+                initialRight[node + i] = node + (i + 1) % 4;
+
+                // Append to the bottom of the column
+                initialUp[node + i] = initialUp[c];
+                initialDown[node + i] = c;
+                initialDown[initialUp[c]] = node + i;
+                initialUp[c] = node + i;
+                initialSizes[c]++;
+            }
+            node += 4;
+        }
+    }
+
+    /**
+     * Sets the budget checked by later solves.
+     *
+     * @param budget - The budget, or null for no limits (default)
+     */
+    public void setBudget (SearchBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Finds a solution for a board.
+     *
+     * @param board - The board to be solved
+     * @return The result, with the solved board if solved. Each row tried counts as a guess, and each row undone
+     * as a backtrack.
+     */
+    public SolveResult solve (SudokuBoard board) {
+        checkSize(board);
+        return run(board, 1);
+    }
+
+    /**
+     * Counts the solutions of a board, up to a limit (e.g. 2 to check that a puzzle has exactly one solution).
+     *
+     * @param board - The board to be solved
+     * @param limit - Number of solutions after which to stop counting, or 0 for no limit
+     * @return The result, with the first solution found and the number of solutions counted.
+     */
+    public SolveResult countSolutions (SudokuBoard board, long limit) {
+        if (limit < 0) throw new IllegalArgumentException("The limit must not be negative");
+        checkSize(board);
+        return run(board, limit);
+    }
+
+    /**
+     * @return The width of the boards this instance solves.
+     */
+    public int getSize () {
+        return n;
+    }
+
+    /**
+     * Checks that a board is the size this instance was constructed for.
+     *
+     * @param board - The board to be solved
+     */
+    private void checkSize (SudokuBoard board) {
+        if (board.getSize() != n) {
+            throw new IllegalArgumentException(String.format("Expected a %dx%d board, got %dx%d", n, n,
+                    board.getSize(), board.getSize()));
+        }
+    }
+
+    /**
+     * Helper function resetting the links, placing the clues and running the search.
+     *
+     * @param board - The board to be solved
+     * @param limit - Number of solutions after which to stop, or 0 for no limit
+     * @return The result of the search.
+     */
+    private SolveResult run (SudokuBoard board, long limit) {
+        long start = System.nanoTime();
+        System.arraycopy(initialLeft, 0, left, 0, nodes);
+        System.arraycopy(initialRight, 0, right, 0, nodes);
+        System.arraycopy(initialUp, 0, up, 0, nodes);
+        System.arraycopy(initialDown, 0, down, 0, nodes);
+        System.arraycopy(initialSizes, 0, sizes, 0, columns + 1);
+        this.limit = limit;
+        solutions = 0;
+        guesses = 0;
+        backtracks = 0;
+        stopReason = null;
+
+        // Place each clue by covering the columns of its row, unless another clue has covered one of them already
+        int clues = 0;
+        for (int space = 0; space < n * n; space++) {
+            int number = board.getNumber(space);
+            if (number == 0) continue;
+            int node = columns + 1 + 4 * (space * n + number - 1);
+            for (int i = 0; i < 4; i++) {
+                int header = column[node + i];
+                if (left[right[header]] != header) {
+                    return new SolveResult(SolveResult.Status.UNSOLVABLE, "Unsolvable!", null, 0, 0,
+                            System.nanoTime() - start);
+                }
+            }
+            for (int i = 0; i < 4; i++) cover(column[node + i]);
+            chosen[clues++] = row[node];
+        }
+
+        search(clues);
+        long elapsed = System.nanoTime() - start;
+
+        SudokuBoard solved = null;
+        if (solutions > 0) {
+            char[][] solvedCells = new char[n][n];
+            for (int i = 0; i < solutionSize; i++) {
+                int space = solution[i] / n;
+                solvedCells[space / n][space % n] = BoardLayout.toSymbol(solution[i] % n + 1);
+            }
+            solved = new SudokuBoard(solvedCells);
+        }
+        if (stopReason != null) {
+            SolveResult.Status status = budget.isCancelled()
+                    ? SolveResult.Status.CANCELLED : SolveResult.Status.LIMIT_REACHED;
+            return new SolveResult(status, stopReason, solved, guesses, backtracks, elapsed, solutions);
+        }
+        if (solutions == 0) {
+            return new SolveResult(SolveResult.Status.UNSOLVABLE, "Unsolvable!", null, guesses, backtracks, elapsed);
+        }
+        return new SolveResult(SolveResult.Status.SOLVED, "Solved!", solved, guesses, backtracks, elapsed, solutions);
+    }
+
+    /**
+     * Algorithm X - covers the column with the fewest rows left and tries each of its rows in turn.
+     *
+     * @param depth - Number of rows chosen so far
+     * @return Whether the search must stop (the limit was reached or the budget ran out).
+     */
+    private boolean search (int depth) {
+        if (right[ROOT] == ROOT) {
+            if (solutions++ == 0) {
+                System.arraycopy(chosen, 0, solution, 0, depth);
+                solutionSize = depth;
+            }
+            return solutions == limit;
+        }
+
+        int best = right[ROOT];
+        for (int c = right[best]; c != ROOT; c = right[c]) {
+            if (sizes[c] < sizes[best]) best = c;
+        }
+        if (sizes[best] == 0) return false;
+
+        cover(best);
+        for (int r = down[best]; r != best; r = down[r]) {
+            if (budget != null && budget.isDue(guesses)
+                    && (stopReason = budget.check(guesses)) != null) {
+                return true;
+            }
+            guesses++;
+            chosen[depth] = row[r];
+            for (int j = right[r]; j != r; j = right[j]) cover(column[j]);
+            if (search(depth + 1)) return true;
+            for (int j = left[r]; j != r; j = left[j]) uncover(column[j]);
+            backtracks++;
+        }
+        uncover(best);
+        return false;
+    }
+
+    /**
+     * Removes a column from the header list, and every row with a node in it from the other columns.
+     *
+     * @param c - The column header
+     */
+    private void cover (int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                sizes[column[j]]--;
+            }
+        }
+    }
+
+    /**
+     * Undoes cover(), relinking in the reverse order.
+     *
+     * @param c - The column header
+     */
+    private void uncover (int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                sizes[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+}
@@ -1,25 +1,38 @@
 package me.leagueofcake.sudoku;
 
-import java.util.Set;
-import java.util.Stack;
-
 /**
- * Guess class - stores a point (row, col) and a Stack of possible numbers (1-9) for the point.
+ * Guess class - stores a point (row, col) and the possible numbers (1 to the board size) for the point still to be
+ * tried, as a bitmask with bit n set if n is possible.
  */
 public class Guess {
     public Point point;
-    public Stack<Byte> possible;
+    public int possible;
 
     /**
-     * Constructs a Guess from a given point and a Set of possible numbers for the given point.
+     * Constructs a Guess from a given point and the possible numbers for the given point.
      * @param point - Point object (row, col)
-     * @param possible - A set of Bytes representing the possible numbers for the point
+     * @param possible - A bitmask with bit n set if n is a possible number for the point
      */
-    public Guess (Point point, Set<Byte> possible) {
+    public Guess (Point point, int possible) {
         this.point = point;
-        this.possible = new Stack<>();
-        for (Byte b: possible) {
-            this.possible.push(b);
-        }
+        this.possible = possible;
+    }
+
+    /**
+     * @return Whether every possible number has been tried.
+     */
+    public boolean isEmpty () {
+        return possible == 0;
+    }
+
+    /**
+     * Removes the highest possible number not yet tried.
+     *
+     * @return The number.
+     */
+    public byte pop () {
+        byte number = (byte) (31 - Integer.numberOfLeadingZeros(possible));
+        possible &= ~(1 << number);
+        return number;
     }
 }
@@ -0,0 +1,64 @@
+package me.leagueofcake.sudoku;
+
+/**
+ * HiddenSingles class - fills in a number wherever it is possible in only one space of a row, column or box.
+ *
+ * E.g. (. is the only space in the top-left box 7 can go in, _ represents any number).
+ * __. ___ ___
+ * ___ _7_ ___
+ * ___ ___ 7__
+ *
+ * ___ ___ ___
+ * 7__ ___ ___
+ * ___ ___ ___
+ *
+ * ___ ___ ___
+ * _7_ ___ ___
+ * ___ ___ ___
+ *
+ * Each unit is scanned once, keeping bitmasks of the numbers possible in at least one and in at least two of its
+ * spaces. Also finds the board invalid if a number missing from a unit is not possible in any of its spaces.
+ */
+public class HiddenSingles implements Technique {
+    @Override
+    public String getName () {
+        return "Hidden singles";
+    }
+
+    @Override
+    public int apply (SudokuBoard board) {
+        BoardLayout layout = board.getLayout();
+        int placed = 0;
+        for (int u = 0; u < layout.getUnitCount(); u++) {
+            int[] unit = layout.getUnit(u);
+            int present = 0, once = 0, twice = 0;
+            for (int cell : unit) {
+                int number = board.getNumber(cell);
+                if (number != 0) {
+                    present |= 1 << number;
+                } else {
+                    int possible = board.getCandidates(cell);
+                    twice |= once & possible;
+                    once |= possible;
+                }
+            }
+            if ((present | once) != layout.getAllNumbers()) return -1;
+
+            for (int singles = once & ~twice; singles != 0; singles &= singles - 1) {
+                int bit = singles & -singles;
+                // An earlier single may have taken the only space left for this one
+                int target = -1;
+                for (int cell : unit) {
+                    if ((board.getCandidates(cell) & bit) != 0) {
+                        target = cell;
+                        break;
+                    }
+                }
+                if (target == -1) return -1;
+                board.place(target, Integer.numberOfTrailingZeros(bit));
+                placed++;
+            }
+        }
+        return placed;
+    }
+}
@@ -0,0 +1,88 @@
+package me.leagueofcake.sudoku;
+
+import java.util.Arrays;
+
+/**
+ * HiddenSubsets class - hidden pairs (size 2) and triples (size 3).
+ *
+ * If size numbers missing from a unit are only possible in size of its spaces between them, those spaces must hold
+ * those numbers, and every other number is eliminated from them.
+ *
+ * For each missing number, the positions in the unit it is possible in are kept as a bitmask, and numbers possible in
+ * 2 to size spaces are combined recursively, keeping the union of their positions.
+ */
+public class HiddenSubsets implements Technique {
+    private final int size;
+    // Bitmask of the positions in the unit each number is possible in
+    private final int[] places = new int[BoardLayout.MAX_SIZE + 1];
+    // Numbers which may be part of a subset
+    private final int[] numbers = new int[BoardLayout.MAX_SIZE];
+
+    /**
+     * Constructs the technique for subsets of the given size.
+     *
+     * @param size - Number of numbers in a subset (2 for pairs, 3 for triples)
+     */
+    public HiddenSubsets (int size) {
+        if (size < 2) throw new IllegalArgumentException("The size must be at least 2");
+        this.size = size;
+    }
+
+    @Override
+    public String getName () {
+        return size == 2 ? "Hidden pairs" : size == 3 ? "Hidden triples" : "Hidden subsets of " + size;
+    }
+
+    @Override
+    public int apply (SudokuBoard board) {
+        BoardLayout layout = board.getLayout();
+        int eliminated = 0;
+        for (int u = 0; u < layout.getUnitCount(); u++) {
+            int[] unit = layout.getUnit(u);
+            Arrays.fill(places, 0, layout.getSize() + 1, 0);
+            for (int i = 0; i < unit.length; i++) {
+                for (int possible = board.getCandidates(unit[i]); possible != 0; possible &= possible - 1) {
+                    places[Integer.numberOfTrailingZeros(possible)] |= 1 << i;
+                }
+            }
+            int count = 0;
+            for (int number = 1; number <= layout.getSize(); number++) {
+                int spaces = Integer.bitCount(places[number]);
+                if (spaces >= 2 && spaces <= size) numbers[count++] = number;
+            }
+            if (count >= size) eliminated += combine(board, unit, count, 0, 0, 0, 0);
+        }
+        return eliminated;
+    }
+
+    /**
+     * Helper function trying every combination of the remaining numbers, eliminating every other number from the
+     * spaces of each subset found.
+     *
+     * @param board - The board to be changed
+     * @param unit - The spaces of the unit
+     * @param count - Number of entries in numbers
+     * @param start - First entry in numbers still to be combined
+     * @param chosen - Number of numbers chosen so far
+     * @param subset - Bitmask of the numbers chosen so far
+     * @param spaces - Union of the positions in the unit of the numbers chosen so far
+     * @return The number of possible numbers eliminated.
+     */
+    private int combine (SudokuBoard board, int[] unit, int count, int start, int chosen, int subset, int spaces) {
+        if (chosen == size) {
+            int eliminated = 0;
+            for (int rest = spaces; rest != 0; rest &= rest - 1) {
+                eliminated += board.eliminate(unit[Integer.numberOfTrailingZeros(rest)], ~subset);
+            }
+            return eliminated;
+        }
+        int eliminated = 0;
+        for (int i = start; i <= count - (size - chosen); i++) {
+            int number = numbers[i];
+            int union = spaces | places[number];
+            if (Integer.bitCount(union) > size) continue;
+            eliminated += combine(board, unit, count, i + 1, chosen + 1, subset | (1 << number), union);
+        }
+        return eliminated;
+    }
+}
@@ -0,0 +1,102 @@
+package me.leagueofcake.sudoku;
+
+/**
+ * LockedCandidates class - pointing pairs and box-line reduction (claiming).
+ *
+ * Pointing: if a number is only possible in one row (or column) within a box, it must go in that row within the box,
+ * and is eliminated from the rest of the row.
+ *
+ * Box-line reduction: if a number is only possible in one box within a row (or column), it must go in that box within
+ * the row, and is eliminated from the rest of the box.
+ *
+ * Both are the same deduction with the roles of the units swapped - a number confined to where one unit meets another
+ * is eliminated from the rest of the other unit.
+ *
+ * Instances keep a scratch array, so they are not thread-safe.
+ */
+public class LockedCandidates implements Technique {
+    private final boolean pointing;
+    // Bitmask of the positions in the unit each number is possible in
+    private final int[] places = new int[BoardLayout.MAX_SIZE + 1];
+
+    /**
+     * Constructs one of the two kinds of the technique.
+     *
+     * @param pointing - true for pointing pairs (boxes onto rows and columns), false for box-line reduction (rows and
+     *                 columns onto boxes)
+     */
+    public LockedCandidates (boolean pointing) {
+        this.pointing = pointing;
+    }
+
+    @Override
+    public String getName () {
+        return pointing ? "Pointing pairs" : "Box-line reduction";
+    }
+
+    @Override
+    public int apply (SudokuBoard board) {
+        BoardLayout layout = board.getLayout();
+        int eliminated = 0;
+        int first = pointing ? layout.getFirstBoxUnit() : 0;
+        int last = pointing ? layout.getUnitCount() : layout.getFirstBoxUnit();
+        for (int u = first; u < last; u++) {
+            int[] unit = layout.getUnit(u);
+            // Each space's possible numbers are read once, building the positions in the unit of each number.
+            // Eliminations are only made outside the unit, so the positions stay valid while they are used
+            int missing = 0;
+            for (int i = 0; i < unit.length; i++) {
+                int possible = board.getCandidates(unit[i]);
+                missing |= possible;
+                for (; possible != 0; possible &= possible - 1) {
+                    places[Integer.numberOfTrailingZeros(possible)] |= 1 << i;
+                }
+            }
+
+            for (; missing != 0; missing &= missing - 1) {
+                int bit = missing & -missing;
+                int number = Integer.numberOfTrailingZeros(bit);
+                // Bitmasks of the rows, columns and boxes of the spaces the number is possible in
+                int rows = 0, cols = 0, boxes = 0;
+                for (int spaces = places[number]; spaces != 0; spaces &= spaces - 1) {
+                    int cell = unit[Integer.numberOfTrailingZeros(spaces)];
+                    rows |= 1 << layout.row(cell);
+                    cols |= 1 << layout.col(cell);
+                    boxes |= 1 << layout.box(cell);
+                }
+                places[number] = 0;
+                if (pointing) {
+                    if (Integer.bitCount(rows) == 1) {
+                        eliminated += eliminateOutside(board, layout, Integer.numberOfTrailingZeros(rows), u, bit);
+                    }
+                    if (Integer.bitCount(cols) == 1) {
+                        eliminated += eliminateOutside(board, layout,
+                                layout.getFirstColumnUnit() + Integer.numberOfTrailingZeros(cols), u, bit);
+                    }
+                } else if (Integer.bitCount(boxes) == 1) {
+                    eliminated += eliminateOutside(board, layout,
+                            layout.getFirstBoxUnit() + Integer.numberOfTrailingZeros(boxes), u, bit);
+                }
+            }
+        }
+        return eliminated;
+    }
+
+    /**
+     * Helper function eliminating a number from the spaces of one unit which are not in another.
+     *
+     * @param board - The board to be changed
+     * @param layout - The layout of the board
+     * @param target - Index of the unit to eliminate the number from
+     * @param source - Index of the unit whose spaces are skipped
+     * @param bit - Bitmask of the number
+     * @return The number of possible numbers eliminated.
+     */
+    private static int eliminateOutside (SudokuBoard board, BoardLayout layout, int target, int source, int bit) {
+        int eliminated = 0;
+        for (int cell : layout.getUnit(target)) {
+            if (!layout.contains(source, cell)) eliminated += board.eliminate(cell, bit);
+        }
+        return eliminated;
+    }
+}
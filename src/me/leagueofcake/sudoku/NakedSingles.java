@@ -0,0 +1,29 @@
+package me.leagueofcake.sudoku;
+
+/**
+ * NakedSingles class - fills in every empty space with only one possible number left.
+ *
+ * Also finds the board invalid if an empty space has no possible numbers left, so it is run first.
+ */
+public class NakedSingles implements Technique {
+    @Override
+    public String getName () {
+        return "Naked singles";
+    }
+
+    @Override
+    public int apply (SudokuBoard board) {
+        int placed = 0;
+        // Filled spaces are replaced by the last empty space, which has already been visited
+        for (int i = board.getEmptyCount() - 1; i >= 0; i--) {
+            int cell = board.getEmptyCell(i);
+            int possible = board.getCandidates(cell);
+            if (possible == 0) return -1;
+            if ((possible & (possible - 1)) == 0) {
+                board.place(cell, Integer.numberOfTrailingZeros(possible));
+                placed++;
+            }
+        }
+        return placed;
+    }
+}
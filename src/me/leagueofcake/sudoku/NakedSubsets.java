@@ -0,0 +1,82 @@
+package me.leagueofcake.sudoku;
+
+/**
+ * NakedSubsets class - naked pairs (size 2) and triples (size 3).
+ *
+ * If the possible numbers of size spaces in a unit only make up size numbers between them, those numbers must go in
+ * those spaces, and are eliminated from every other space in the unit.
+ *
+ * Spaces with 2 to size possible numbers are combined recursively, keeping the union of their possible numbers as a
+ * bitmask, so combinations are abandoned as soon as the union grows past size numbers.
+ */
+public class NakedSubsets implements Technique {
+    private final int size;
+    // Positions in the unit of the spaces which may be part of a subset
+    private final int[] positions = new int[BoardLayout.MAX_SIZE];
+
+    /**
+     * Constructs the technique for subsets of the given size.
+     *
+     * @param size - Number of spaces in a subset (2 for pairs, 3 for triples)
+     */
+    public NakedSubsets (int size) {
+        if (size < 2) throw new IllegalArgumentException("The size must be at least 2");
+        this.size = size;
+    }
+
+    @Override
+    public String getName () {
+        return size == 2 ? "Naked pairs" : size == 3 ? "Naked triples" : "Naked subsets of " + size;
+    }
+
+    @Override
+    public int apply (SudokuBoard board) {
+        BoardLayout layout = board.getLayout();
+        int eliminated = 0;
+        for (int u = 0; u < layout.getUnitCount(); u++) {
+            int[] unit = layout.getUnit(u);
+            int count = 0, emptyCount = 0;
+            for (int i = 0; i < unit.length; i++) {
+                int possible = Integer.bitCount(board.getCandidates(unit[i]));
+                if (possible > 0) emptyCount++;
+                if (possible >= 2 && possible <= size) positions[count++] = i;
+            }
+            // A subset only eliminates anything if there are other empty spaces in the unit
+            if (count >= size && emptyCount > size) {
+                eliminated += combine(board, unit, count, 0, 0, 0, 0);
+            }
+        }
+        return eliminated;
+    }
+
+    /**
+     * Helper function trying every combination of the remaining positions, eliminating the numbers of each subset
+     * found from the rest of the unit.
+     *
+     * @param board - The board to be changed
+     * @param unit - The spaces of the unit
+     * @param count - Number of entries in positions
+     * @param start - First entry in positions still to be combined
+     * @param chosen - Number of spaces chosen so far
+     * @param spaces - Bitmask of the positions in the unit chosen so far
+     * @param numbers - Union of the possible numbers of the spaces chosen so far
+     * @return The number of possible numbers eliminated.
+     */
+    private int combine (SudokuBoard board, int[] unit, int count, int start, int chosen, int spaces, int numbers) {
+        if (chosen == size) {
+            int eliminated = 0;
+            for (int i = 0; i < unit.length; i++) {
+                if ((spaces & (1 << i)) == 0) eliminated += board.eliminate(unit[i], numbers);
+            }
+            return eliminated;
+        }
+        int eliminated = 0;
+        for (int i = start; i <= count - (size - chosen); i++) {
+            int position = positions[i];
+            int union = numbers | board.getCandidates(unit[position]);
+            if (Integer.bitCount(union) > size) continue;
+            eliminated += combine(board, unit, count, i + 1, chosen + 1, spaces | (1 << position), union);
+        }
+        return eliminated;
+    }
+}
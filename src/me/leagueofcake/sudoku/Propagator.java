@@ -0,0 +1,85 @@
+package me.leagueofcake.sudoku;
+
+import java.util.Arrays;
+
+/**
+ * Propagator class - a pipeline of Techniques run until none of them can change the board (a fixpoint), counting how
+ * much each technique has done.
+ *
+ * Techniques are run in order, and whenever one changes the board the pipeline starts again from the first, so the
+ * cheap techniques (listed first) make as much progress as they can before the expensive ones are tried. The
+ * pipeline is pluggable - any techniques can be passed to the constructor, in any order - but at least one of them
+ * must find invalid boards (NakedSingles does) for the Solver to backtrack.
+ *
+ * Techniques keep scratch arrays and the counters are not synchronized, so instances are not thread-safe - use one
+ * per thread.
+ */
+public class Propagator {
+    private final Technique[] techniques;
+    private final long[] counts;
+
+    /**
+     * Constructs the default pipeline - naked and hidden singles, naked and hidden pairs, pointing pairs, box-line
+     * reduction, then naked and hidden triples.
+     */
+    public Propagator () {
+        this(new NakedSingles(), new HiddenSingles(), new NakedSubsets(2), new HiddenSubsets(2),
+                new LockedCandidates(true), new LockedCandidates(false), new NakedSubsets(3), new HiddenSubsets(3));
+    }
+
+    /**
+     * Constructs a pipeline of the given techniques.
+     *
+     * @param techniques - The techniques, cheapest first
+     */
+    public Propagator (Technique... techniques) {
+        if (techniques.length == 0) throw new IllegalArgumentException("At least one technique is needed");
+        this.techniques = techniques.clone();
+        this.counts = new long[techniques.length];
+    }
+
+    /**
+     * Runs the techniques on a board until none of them changes it.
+     *
+     * @param board - The board to be changed
+     * @return The number of spaces filled in plus the number of possible numbers eliminated, or -1 if the board was
+     * found to be invalid.
+     */
+    public int propagate (SudokuBoard board) {
+        int changes = 0;
+        for (int i = 0; i < techniques.length; ) {
+            int made = techniques[i].apply(board);
+            if (made == -1) return -1;
+            if (made > 0) {
+                counts[i] += made;
+                changes += made;
+                i = 0;
+            } else {
+                i++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @return The techniques, in the order they are run.
+     */
+    public Technique[] getTechniques () {
+        return techniques.clone();
+    }
+
+    /**
+     * @return The number of spaces filled in plus the number of possible numbers eliminated by each technique, in the
+     * order of getTechniques(), since construction or the last resetCounts().
+     */
+    public long[] getCounts () {
+        return counts.clone();
+    }
+
+    /**
+     * Sets every technique's count back to 0.
+     */
+    public void resetCounts () {
+        Arrays.fill(counts, 0);
+    }
+}
@@ -0,0 +1,74 @@
+package me.leagueofcake.sudoku;
+
+/**
+ * SearchBudget class - limits on how long the Sudoku Solver may run and how many guesses it may make, plus a flag to
+ * cancel it from another thread.
+ *
+ * The Solver checks its budget before each guess, and stops with a partial result (its statistics so far) once the
+ * budget has run out or cancel() has been called. DancingLinks tries rows far more cheaply than the Solver makes and
+ * propagates guesses, so it asks isDue() for each row, which compares the count with the guess limit, and only reads
+ * the clock every CHECK_INTERVAL rows. The time limit starts when the budget is constructed.
+ *
+ * There is no memory limit, as the Solver works on a single board and undoes its guesses through the board's trail,
+ * so its memory is bounded by the number of spaces.
+ */
+public class SearchBudget {
+    // Number of rows DancingLinks tries between checks of the budget
+    public static final int CHECK_INTERVAL = 1024;
+
+    private final long deadline;
+    private final long maxGuesses;
+    private final long guessLimit; // maxGuesses, or Long.MAX_VALUE if there is no limit
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a budget, starting its time limit. A limit of 0 means no limit.
+     *
+     * @param timeLimitMillis - Time the Solver may take from now, in milliseconds
+     * @param maxGuesses - Largest number of guesses the Solver may make
+     */
+    public SearchBudget (long timeLimitMillis, long maxGuesses) {
+        if (timeLimitMillis < 0 || maxGuesses < 0) throw new IllegalArgumentException("Limits must not be negative");
+        this.deadline = timeLimitMillis > 0 ? System.nanoTime() + timeLimitMillis * 1000000L : 0;
+        this.maxGuesses = maxGuesses;
+        this.guessLimit = maxGuesses > 0 ? maxGuesses : Long.MAX_VALUE;
+    }
+
+    /**
+     * Asks the Solver using this budget to stop at its next check.
+     */
+    public void cancel () {
+        cancelled = true;
+    }
+
+    /**
+     * @return Whether cancel() has been called.
+     */
+    public boolean isCancelled () {
+        return cancelled;
+    }
+
+    /**
+     * Returns whether DancingLinks should call check() now - every CHECK_INTERVAL rows, and on every row once the
+     * guess limit is reached.
+     *
+     * @param guesses - Number of rows DancingLinks has tried
+     * @return Whether check() is due.
+     */
+    public boolean isDue (long guesses) {
+        return guesses >= guessLimit || guesses % CHECK_INTERVAL == 0;
+    }
+
+    /**
+     * Checks whether the Solver may carry on.
+     *
+     * @param guesses - Number of guesses the Solver has made
+     * @return null if the Solver may carry on, or a description of why it must stop.
+     */
+    public String check (long guesses) {
+        if (cancelled) return "Cancelled!";
+        if (maxGuesses > 0 && guesses >= maxGuesses) return String.format("Budget of %d guesses reached!", maxGuesses);
+        if (deadline != 0 && System.nanoTime() - deadline > 0) return "Out of time!";
+        return null;
+    }
+}
@@ -0,0 +1,117 @@
+package me.leagueofcake.sudoku;
+
+/**
+ * SolveResult class - the outcome of one Solver run, with the solved board and statistics about the search.
+ */
+public class SolveResult {
+    /**
+     * Outcome of a run.
+     */
+    public enum Status {
+        SOLVED,
+        UNSOLVABLE,    // Every guess led to an invalid board
+        LIMIT_REACHED, // The Solver ran out of its budget (see SearchBudget) before finding a solution
+        CANCELLED      // The Solver was cancelled through its SearchBudget
+    }
+
+    private final Status status;
+    private final String message;
+    private final SudokuBoard board;
+    private final long guesses;
+    private final long backtracks;
+    private final long elapsedNanos;
+    private final long solutionCount;
+
+    /**
+     * Constructs the result of a run.
+     *
+     * @param status - The outcome of the run
+     * @param message - Description of the outcome, for printing
+     * @param board - The solved board, or null if not solved
+     * @param guesses - Number of guesses made
+     * @param backtracks - Number of guesses undone because they led to an invalid board
+     * @param elapsedNanos - Wall-clock time taken, in nanoseconds
+     */
+    public SolveResult (Status status, String message, SudokuBoard board, long guesses, long backtracks,
+                        long elapsedNanos) {
+        this(status, message, board, guesses, backtracks, elapsedNanos, status == Status.SOLVED ? 1 : 0);
+    }
+
+    /**
+     * Constructs the result of a run that counted solutions.
+     *
+     * @param status - The outcome of the run
+     * @param message - Description of the outcome, for printing
+     * @param board - The first solution found, or null if not solved
+     * @param guesses - Number of guesses made
+     * @param backtracks - Number of guesses undone
+     * @param elapsedNanos - Wall-clock time taken, in nanoseconds
+     * @param solutionCount - Number of solutions found
+     */
+    public SolveResult (Status status, String message, SudokuBoard board, long guesses, long backtracks,
+                        long elapsedNanos, long solutionCount) {
+        this.status = status;
+        this.message = message;
+        this.board = board;
+        this.guesses = guesses;
+        this.backtracks = backtracks;
+        this.elapsedNanos = elapsedNanos;
+        this.solutionCount = solutionCount;
+    }
+
+    /**
+     * @return The outcome of the run.
+     */
+    public Status getStatus () {
+        return status;
+    }
+
+    /**
+     * @return Whether a solution was found.
+     */
+    public boolean isSolved () {
+        return status == Status.SOLVED;
+    }
+
+    /**
+     * @return A description of the outcome, for printing.
+     */
+    public String getMessage () {
+        return message;
+    }
+
+    /**
+     * @return The solved board, or null if not solved.
+     */
+    public SudokuBoard getBoard () {
+        return board;
+    }
+
+    /**
+     * @return The number of guesses made.
+     */
+    public long getGuesses () {
+        return guesses;
+    }
+
+    /**
+     * @return The number of guesses undone because they led to an invalid board.
+     */
+    public long getBacktracks () {
+        return backtracks;
+    }
+
+    /**
+     * @return The number of solutions found (at most 1 unless the solutions were counted).
+     */
+    public long getSolutionCount () {
+        return solutionCount;
+    }
+
+    /**
+     * @return The wall-clock time taken, in nanoseconds.
+     */
+    public long getElapsedNanos () {
+        return elapsedNanos;
+    }
+}
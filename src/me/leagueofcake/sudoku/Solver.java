@@ -1,15 +1,15 @@
 package me.leagueofcake.sudoku;
 
-import java.util.Arrays;
-import java.util.Stack;
-
 /**
  * Solver class for Sudoku.
  *
- * Solves each board using basic elimination and guesses with backtracking.
+ * Solves each board using constraint propagation (see Propagator) and guesses with backtracking. Returns a
+ * SolveResult and prints nothing - see SudokuCLI for printing results.
  */
 class Solver {
     private final SudokuBoard boardToBeSolved;
+    private SearchBudget budget;
+    private Propagator propagator = new Propagator();
 
     /**
      * Constructor for the Solver
@@ -21,70 +21,107 @@ class Solver {
     }
 
     /**
-     * Solves a given Sudoku board using elimination, guesses and backtracking.
+     * Sets a limit on the time and number of guesses of later runs, which can also be used to cancel a run from
+     * another thread.
      *
+     * @param budget - The budget, or null for no limits (default)
      */
-    public void solveSudoku() {
-        BoardNode currNode = new BoardNode(null, boardToBeSolved);
+    public void setBudget (SearchBudget budget) {
+        this.budget = budget;
+    }
 
-        Stack<BoardNode> nodeStack = new Stack<>();
-        Stack<Guess> guessStack = new Stack<>();
+    /**
+     * Sets the pipeline of techniques run after each guess. Its counters keep adding up over later runs.
+     *
+     * @param propagator - The pipeline (default is new Propagator())
+     */
+    public void setPropagator (Propagator propagator) {
+        if (propagator == null) throw new IllegalArgumentException("A propagator is needed");
+        this.propagator = propagator;
+    }
 
-        // Find all definite matches
-        currNode.current.findAllMatches();
+    /**
+     * @return The pipeline of techniques run after each guess, with its counters.
+     */
+    public Propagator getPropagator () {
+        return propagator;
+    }
 
-        // Generate a Guess to test
-        Guess currGuess = currNode.current.nextGuess();
-        nodeStack.push(currNode);
-        guessStack.push(currGuess);
+    /**
+     * Solves a given Sudoku board using constraint propagation, guesses and backtracking.
+     *
+     * The search works on a single board. Each guess records the board's trail mark (see SudokuBoard.mark()) before
+     * its candidates are tried, and every candidate starts by undoing the board back to that mark, so backtracking
+     * only empties the spaces filled in (and restores the numbers eliminated) since the guess, and memory does not grow
+     * with the depth of the search.
+     *
+     * After each guess the propagator runs to a fixpoint, so the next guess is only made once no technique can make
+     * progress. Eliminations shrink the possible numbers of the spaces guessed next as well as filling in spaces.
+     *
+     * The budget (if set) is checked before each guess - every guess runs the whole pipeline, which costs far more than
+     * the check.
+     *
+     * @return The result, with the solved board if solved, or the statistics so far if the budget ran out.
+     */
+    public SolveResult solveSudoku () {
+        long start = System.nanoTime();
+        long guesses = 0, backtracks = 0;
+        SudokuBoard board = new SudokuBoard(boardToBeSolved);
 
-        // System.out.println("GUESSING STAGE");
-        while (!currNode.current.isSolved()) {
-            // System.out.println("STILL SOLVING!");
-            // for (int i = 0; i < 9; i++) {
-                // System.out.println(Arrays.toString(currNode.current.board[i]));
-            // }
+        // Guesses on the current path, with the board's trail mark when each was made
+        Guess[] guessStack = new Guess[board.getLayout().getCellCount()];
+        int[] marks = new int[guessStack.length];
+        int depth = 0;
 
-            if (currGuess.possible.empty()) { // No more candidates - backtrack
+        // Clashing clues leave no solution, but only show up once every space around them is filled in, so the
+        // search would otherwise try every guess first. Fill in everything that can be deduced before guessing
+        if (board.isClashing() || propagator.propagate(board) == -1) {
+            return new SolveResult(SolveResult.Status.UNSOLVABLE, "Unsolvable!", null, 0, 0,
+                    System.nanoTime() - start);
+        }
+
+        // System.out.println("GUESSING STAGE");
+        if (!board.isSolved()) {
+            marks[0] = board.mark();
+            guessStack[depth++] = board.nextGuess();
+        }
+        while (!board.isSolved()) {
+            Guess currGuess = guessStack[depth - 1];
+            if (currGuess.isEmpty()) { // No more candidates - backtrack
                 // System.out.println(String.format("NO MORE CANDIDATES FOR: (%d, %d)", currGuess.point.col, currGuess.point.row));
-                nodeStack.pop();
-                guessStack.pop();
-                currNode = nodeStack.peek();
-                currGuess = guessStack.peek();
-            } else { // Try next candidate in guess
-                currNode = new BoardNode(currNode, new SudokuBoard(nodeStack.peek().current));
-                currGuess = guessStack.peek();
-                currNode.current.applyGuess(currGuess.point, currGuess.possible.pop());
-                nodeStack.push(currNode);
+                guessStack[--depth] = null;
+                if (depth == 0) { // Every candidate of the first guess failed
+                    return new SolveResult(SolveResult.Status.UNSOLVABLE, "Unsolvable!", null, guesses, backtracks,
+                            System.nanoTime() - start);
+                }
+                continue;
+            }
 
-                int matchesFound = currNode.current.findMatch();
-                if (matchesFound == -1) { // Invalid guess, try other guess
-                    // System.out.println("BACKTRACKING");
-                    nodeStack.pop();
-                    currNode = currNode.parent;
-                    currGuess = guessStack.peek();
-                } else if (matchesFound == 0) { // All possible matches found - make a new guess
-                    currGuess = currNode.current.nextGuess();
-                    guessStack.push(currGuess);
-                } else { // Matches found - keep trying to match
-                    while (matchesFound > 0) {
-                        matchesFound = boardToBeSolved.findMatch();
-                    }
-                    if (matchesFound == -1) { // Invalid guess, try other guess
-                        // System.out.println("BACKTRACKING");
-                        nodeStack.pop();
-                        currNode = currNode.parent;
-                        currGuess = guessStack.peek();
-                    } else { // All posssible matches found - make a new guess
-                        currGuess = currNode.current.nextGuess();
-                        guessStack.push(currGuess);
-                    }
+            if (budget != null) {
+                String reason = budget.check(guesses);
+                if (reason != null) {
+                    SolveResult.Status status = budget.isCancelled()
+                            ? SolveResult.Status.CANCELLED : SolveResult.Status.LIMIT_REACHED;
+                    return new SolveResult(status, reason, null, guesses, backtracks, System.nanoTime() - start);
                 }
             }
+
+            // Try next candidate in guess, from the board as it was when the guess was made
+            board.undo(marks[depth - 1]);
+            board.applyGuess(currGuess.point, currGuess.pop());
+            guesses++;
+
+            // Keep propagating until no technique makes progress
+            if (propagator.propagate(board) == -1) { // Invalid guess, try other guess
+                // System.out.println("BACKTRACKING");
+                backtracks++;
+            } else if (!board.isSolved()) { // All possible matches found - make a new guess
+                marks[depth] = board.mark();
+                guessStack[depth++] = board.nextGuess();
+            }
         }
 
-        // Print out solved board state
-        System.out.println("Solved!");
-        System.out.println(currNode.current);
+        return new SolveResult(SolveResult.Status.SOLVED, "Solved!", board, guesses, backtracks,
+                System.nanoTime() - start);
     }
 }
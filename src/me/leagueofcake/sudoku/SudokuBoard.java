@@ -3,254 +3,313 @@ package me.leagueofcake.sudoku;
 import java.util.*;
 
 /**
- * SudokuBoard class representing a 9x9 Sudoku board.
+ * SudokuBoard class representing a Sudoku board of any size from BoardLayout - 9x9, 16x16 or 25x25 (or the trivial
+ * 1x1 and 4x4).
  *
- * Stores a 2d char array representing the board, with '.' representing an empty space
- * and '1' - '9' representing their corresponding numbers.
+ * Stores a 2d char array representing the board, with '.' representing an empty space and the symbols of BoardLayout
+ * ('1' - '9', then 'A' - 'P' for 10 - 25) representing their corresponding numbers. The numbers are also kept by space
+ * in values, so they are not converted from symbols while solving.
  *
  * Also tracks:
- * -toFillIn - a Set of Points that are currently empty ('.') - saves us having to iterate through the board each time
- *   we want to find all empty slots
- * -rows - A List of Sets (each of which contains the numbers for each row) to help with lookups
- * -cols - A List of Sets (each of which contains the numbers for each column) to help with lookups
- * -boxes - A List of Sets (each of which contains the numbers for each 3x3 box) to help with lookups
+ * -empty - the indices (row * size + col) of the spaces that are currently empty ('.'), in the first emptyCount
+ *   entries - saves us having to iterate through the board each time we want to find all empty slots. position holds
+ *   the index of each empty space in empty, so a space can be removed by moving the last one into its place
+ * -rows - A bitmask for each row, with bit n set if the row contains the number n, to help with lookups
+ * -cols - A bitmask for each column, with bit n set if the column contains the number n
+ * -boxes - A bitmask for each box, with bit n set if the box contains the number n
+ * -candidates - A bitmask for each space of the numbers not yet eliminated from it (see eliminate())
+ * -trail - the spaces filled in and the numbers eliminated, in order, so they can be undone by undo() when
+ *   backtracking rather than copying the board for each guess
+ * -clashing - whether two of the clues the board was made with are the same number in the same row, column or box, so
+ *   the board has no solution
+ *
+ * The possible numbers for a space (see getCandidates()) are then the bits of its candidates set in neither its row,
+ * column nor box. Filling in a space only updates three bitmasks, so the possible numbers of every other space are kept
+ * up to date incrementally, and are iterated with Integer.numberOfTrailingZeros without allocating anything. The row,
+ * column and box of a space are looked up in the layout's tables for the board size.
  */
 public class SudokuBoard {
-    public static final int BOARD_SIZE = 9;
-
+    private final BoardLayout layout;
+    private final int size;
     private char[][] board;
-    private Set<Point> toFillIn;
-    private List<Set<Byte>> rows;
-    private List<Set<Byte>> cols;
-    private List<Set<Byte>> boxes;
+    private byte[] values;
+    private int[] empty;
+    private int[] position;
+    private int emptyCount;
+    private int[] rows;
+    private int[] cols;
+    private int[] boxes;
+    private int[] candidates;
+    private int[] trailCells;
+    private int[] trailNumbers; // Numbers eliminated, or 0 if the space was filled in
+    private int trailSize;
+    private boolean clashing;
 
     /**
      * Copy constructor
      * @param b - SudokuBoard object to be copied
      */
     public SudokuBoard(SudokuBoard b) {
-        rows = new ArrayList<>();
-        cols = new ArrayList<>();
-        boxes = new ArrayList<>();
-        toFillIn = new HashSet<>(b.toFillIn);
+        layout = b.layout;
+        size = b.size;
 
         // Copy 2d board array
-        board = new char[BOARD_SIZE][BOARD_SIZE];
-        for (byte row = 0; row < BOARD_SIZE; row++) {
-            System.arraycopy(b.board[row], 0, board[row], 0, b.board[row].length);
+        board = new char[size][size];
+        for (int row = 0; row < size; row++) {
+            System.arraycopy(b.board[row], 0, board[row], 0, size);
         }
 
-        // Copy rows, cols and boxes from b
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            rows.add(new HashSet<>(b.rows.get(i)));
-            cols.add(new HashSet<>(b.cols.get(i)));
-            boxes.add(new HashSet<>(b.boxes.get(i)));
-        }
+        // Copy values, empty spaces, rows, cols, boxes, candidates and the trail from b
+        values = b.values.clone();
+        empty = b.empty.clone();
+        position = b.position.clone();
+        emptyCount = b.emptyCount;
+        rows = b.rows.clone();
+        cols = b.cols.clone();
+        boxes = b.boxes.clone();
+        candidates = b.candidates.clone();
+        trailCells = b.trailCells.clone();
+        trailNumbers = b.trailNumbers.clone();
+        trailSize = b.trailSize;
+        clashing = b.clashing;
     }
 
     /**
-     * Constructor for a SudokuBoard from a 2d char array, with '.' representing an empty space
+     * Constructor for a SudokuBoard from a square 2d char array, with '.' representing an empty space. The size of the
+     * board is taken from the array, whose width must be a square no larger than 25. Clues that clash with each other
+     * are accepted, but the board is then never solved (see isClashing()).
      *
      * @param board 2d character array representing the board
+     * @throws IllegalArgumentException If the array is not a board, or holds a symbol outside the board's numbers.
      */
     public SudokuBoard(char[][] board) {
-        rows = new ArrayList<>();
-        cols = new ArrayList<>();
-        boxes = new ArrayList<>();
-        toFillIn = new HashSet<>();
+        layout = BoardLayout.ofSize(board.length);
+        size = layout.getSize();
+        int cells = layout.getCellCount();
+        values = new byte[cells];
+        rows = new int[size];
+        cols = new int[size];
+        boxes = new int[size];
+        empty = new int[cells];
+        position = new int[cells];
+        candidates = new int[cells];
+        Arrays.fill(candidates, layout.getAllNumbers());
+        trailCells = new int[cells];
+        trailNumbers = new int[cells];
 
-        // Copy 2d board array
-        this.board = new char[BOARD_SIZE][BOARD_SIZE];
-        for (byte row = 0; row < BOARD_SIZE; row++) {
-            System.arraycopy(board[row], 0, this.board[row], 0, board[row].length);
-        }
-
-        // Initialise individual HashSets for each row, column and box
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            rows.add(new HashSet<>());
-            cols.add(new HashSet<>());
-            boxes.add(new HashSet<>());
+        // Copy 2d board array, with letters in upper case
+        this.board = new char[size][size];
+        for (int row = 0; row < size; row++) {
+            if (board[row].length != size) throw new IllegalArgumentException("The board must be square");
+            for (int col = 0; col < size; col++) {
+                this.board[row][col] = Character.toUpperCase(board[row][col]);
+            }
         }
 
-        // Fill in rows, cols and boxes with numbers from each position, or adds Point to toFillIn if empty
-        for (byte row = 0; row < BOARD_SIZE; row++) {
-            for (byte col = 0; col < BOARD_SIZE; col++) {
-                if (board[row][col] != '.') {
-                    byte box = boxNumber(row, col);
-                    byte b = (byte) (board[row][col] - '0');
-                    rows.get(row).add(b);
-                    cols.get(col).add(b);
-                    boxes.get(box).add(b);
-                } else {
-                    toFillIn.add(new Point(row, col));
+        // Fill in rows, cols and boxes with numbers from each position, or adds the space to empty if empty
+        for (int cell = 0; cell < cells; cell++) {
+            int row = layout.row(cell), col = layout.col(cell);
+            char c = this.board[row][col];
+            if (c != '.') {
+                int number = BoardLayout.toNumber(c);
+                if (number == 0 || number > size) {
+                    throw new IllegalArgumentException(String.format("Invalid symbol '%s' for a %dx%d board", c,
+                            size, size));
                 }
+                values[cell] = (byte) number;
+                int bit = 1 << number, box = layout.box(cell);
+                if (((rows[row] | cols[col] | boxes[box]) & bit) != 0) clashing = true;
+                rows[row] |= bit;
+                cols[col] |= bit;
+                boxes[box] |= bit;
+            } else {
+                addEmpty(cell);
             }
         }
     }
 
     /**
-     * Finds and returns the possible numbers for a given position. Numbers are excluded if they appear in the same
-     * row, column or box as the requested point.
-     *
-     * @param row - The row number for the given position
-     * @param col - The column number for the given position
-     * @param box - The box number for the given position
-     * @return A set of Bytes representing the possible numbers for the position.
+     * @return The lookup tables for the size of the board.
      */
-    private Set<Byte> findPossible(byte row, byte col, byte box) {
-        Set<Byte> possible = new HashSet<>();
-
-        for (byte i = 1; i <= BOARD_SIZE; i++) {
-            boolean rowContains = rows.get(row).contains(i);
-            boolean colContains = cols.get(col).contains(i);
-            boolean boxContains = boxes.get(box).contains(i);
-            if (!(rowContains || colContains || boxContains)) possible.add(i);
-        }
-        return possible;
+    public BoardLayout getLayout () {
+        return layout;
     }
 
     /**
-     * Given a Set of candidate numbers for an empty space, attempts to check the other two rows and columns for
-     * the box the space resides in. If the candidate resides in the other two rows and other two columns, then it must
-     * fit in the row and column for the space.
-     *
-     * E.g. (. is the candidate space, _ represents any number).
-     * __. ___ ___
-     * ___ _7_ ___
-     * ___ ___ 7__
-     *
-     * ___ ___ ___
-     * 7__ ___ ___
-     * ___ ___ ___
-     *
-     * ___ ___ ___
-     * _7_ ___ ___
-     * ___ ___ ___
-     *
-     * We have that 7 is found in the other two rows (row 2 and 3) and columns (columns 1 and 2) for the given
-     * box (top-left) - hence the only place 7 can be placed in that box is at our empty space (row 1, column 3).
-     *
-     * @param possible - A Set of Bytes representing possible numbers for the given space. Generated by findPossible().
-     * @param row - The row for the given space.
-     * @param col - The column for the given space.
-     * @return The only possible candidate number for the space (if found), or -1 on failure.
+     * @return The width of the board, and the largest number.
      */
-    private byte excluder(Set<Byte> possible, byte row, byte col) {
-        for (Byte candidate : possible) {
-            byte otherRow1 = -1, otherRow2 = -1;
-            byte otherCol1 = -1, otherCol2 = -1;
+    public int getSize () {
+        return size;
+    }
 
-            if (row % 3 == 0) { // 2 below
-                otherRow1 = (byte) (row + 1);
-                otherRow2 = (byte) (row + 2);
-            } else if (row % 3 == 1) { // 1 above 1 below
-                otherRow1 = (byte) (row - 1);
-                otherRow2 = (byte) (row + 1);
-            } else if (row % 3 == 2) { // 2 above
-                otherRow1 = (byte) (row - 2);
-                otherRow2 = (byte) (row - 1);
-            }
+    /**
+     * @return Whether two of the clues the board was made with are the same number in the same row, column or box.
+     */
+    public boolean isClashing () {
+        return clashing;
+    }
 
-            if (!rows.get(otherRow1).contains(candidate)) continue;
-            if (!rows.get(otherRow2).contains(candidate)) continue;
+    /**
+     * Finds and returns the possible numbers for a given space. Numbers are excluded if they appear in the same
+     * row, column or box as the space, or have been eliminated from it.
+     *
+     * @param cell - The index of the space (row * size + col)
+     * @return A bitmask with bit n set if n is a possible number for the space, or 0 if the space is filled in.
+     */
+    public int getCandidates (int cell) {
+        if (values[cell] != 0) return 0;
+        return candidates[cell] & ~(rows[layout.row(cell)] | cols[layout.col(cell)] | boxes[layout.box(cell)])
+                & layout.getAllNumbers();
+    }
 
-            if (col % 3 == 0) { // 2 right
-                otherCol1 = (byte) (col + 1);
-                otherCol2 = (byte) (col + 2);
-            } else if (col % 3 == 1) { // 1 left 1 right
-                otherCol1 = (byte) (col - 1);
-                otherCol2 = (byte) (col + 1);
-            } else if (col % 3 == 2) { // 2 left
-                otherCol1 = (byte) (col - 2);
-                otherCol2 = (byte) (col - 1);
-            }
+    /**
+     * @param cell - The index of the space (row * size + col)
+     * @return The number in the space, or 0 if it is empty.
+     */
+    public int getNumber (int cell) {
+        return values[cell];
+    }
 
-            if (!cols.get(otherCol1).contains(candidate)) continue;
-            if (!cols.get(otherCol2).contains(candidate)) continue;
+    /**
+     * @return The number of empty spaces.
+     */
+    public int getEmptyCount () {
+        return emptyCount;
+    }
 
-            // Candidate number is found in other two rows and other two columns - return!
-            return candidate;
-        }
-        return -1; // Candidate not found via exclusion
+    /**
+     * Returns an empty space. Filling in a space moves the last empty space into its place, so spaces can be filled in
+     * while iterating from the last index down.
+     *
+     * @param i - Index of the empty space, from 0 to getEmptyCount() - 1
+     * @return The index of the space (row * size + col).
+     */
+    public int getEmptyCell (int i) {
+        return empty[i];
     }
 
     /**
-     * Attempts to fill in empty spaces in toFillIn that it is certain of (i.e. without guessing).
+     * Writes a number into an empty space, recording it on the trail. The number should be possible for the space.
      *
-     * @return The number of matches made (if validly filled in), or -1 if we have reached an invalid board state.
+     * @param cell - The index of the space (row * size + col)
+     * @param number - The number to be written
      */
-    public int findMatch() {
-        int matchesMade = 0;
-        Set<Point> used = new HashSet<>();
+    public void place (int cell, int number) {
+        fill(cell, number);
+    }
 
-        for (Point p : toFillIn) {
-            byte row = p.row, col = p.col, box = boxNumber(row, col);
-            Set<Byte> possible = findPossible(row, col, box);
+    /**
+     * Eliminates numbers from the possible numbers of an empty space, recording them on the trail.
+     *
+     * @param cell - The index of the space (row * size + col)
+     * @param numbers - A bitmask of the numbers to be eliminated
+     * @return The number of possible numbers eliminated (0 if none of the numbers were possible).
+     */
+    public int eliminate (int cell, int numbers) {
+        int removed = getCandidates(cell) & numbers;
+        if (removed == 0) return 0;
+        candidates[cell] &= ~removed;
+        record(cell, removed);
+        return Integer.bitCount(removed);
+    }
 
-            if (possible.size() == 0) { // Invalid solution, need to backtrack
-                return -1;
-            }
+    /**
+     * Helper function writing a number into an empty space, adding it to rows, cols and boxes, and recording it on the
+     * trail.
+     *
+     * @param cell - The index of the space (row * size + col)
+     * @param number - The number to be written
+     */
+    private void fill (int cell, int number) {
+        int bit = 1 << number;
+        board[layout.row(cell)][layout.col(cell)] = BoardLayout.toSymbol(number);
+        values[cell] = (byte) number;
+        rows[layout.row(cell)] |= bit;
+        cols[layout.col(cell)] |= bit;
+        boxes[layout.box(cell)] |= bit;
 
-            // If only one possible candidate, use it, otherwise try use the excluder
-            byte found = (possible.size() == 1) ? possible.iterator().next() : excluder(possible, row, col);
+        // Move the last empty space into this space's place in empty
+        int last = empty[--emptyCount];
+        empty[position[cell]] = last;
+        position[last] = position[cell];
+        record(cell, 0);
+    }
 
-            // Found a match - add to rows, cols and boxes
-            if (found != -1) {
-                board[row][col] = (char) (found + '0');
-                rows.get(row).add(found);
-                cols.get(col).add(found);
-                boxes.get(box).add(found);
-                matchesMade++;
-                used.add(p);
-                // System.out.println("CANDIDATE FOUND FOR " + col + ", " + row + ": " + found);
-            }
+    /**
+     * Helper function adding an entry to the trail, growing it if needed.
+     *
+     * @param cell - The index of the space
+     * @param numbers - The numbers eliminated from the space, or 0 if it was filled in
+     */
+    private void record (int cell, int numbers) {
+        if (trailSize == trailCells.length) {
+            trailCells = Arrays.copyOf(trailCells, trailSize << 1);
+            trailNumbers = Arrays.copyOf(trailNumbers, trailSize << 1);
         }
+        trailCells[trailSize] = cell;
+        trailNumbers[trailSize++] = numbers;
+    }
 
-        // Clear filled in Points from toFillIn
-        toFillIn.removeAll(used);
-        return matchesMade;
+    /**
+     * Helper function adding a space to the end of empty.
+     *
+     * @param cell - The index of the space (row * size + col)
+     */
+    private void addEmpty (int cell) {
+        empty[emptyCount] = cell;
+        position[cell] = emptyCount++;
     }
 
     /**
-     * Helper function applying the formula to find the (3x3) box number for a given row and column.
-     * @param row - The row for the point
-     * @param col - The column for the point
-     * @return The number corresponding to the 3x3 box in the board
+     * @return A mark for the current state of the board, to be passed to undo().
      */
-    private byte boxNumber (byte row, byte col) {
-        return (byte) (3 * (row / 3) + (col / 3));
+    public int mark () {
+        return trailSize;
     }
 
     /**
-     * Attempts to find all definite matches. Stops when no more definite matches are found
-     * (i.e. needs to start guessing)
+     * Empties every space filled in since mark() returned the given mark, removing the numbers from rows, cols and
+     * boxes, and restores every number eliminated since. Takes time proportional to the number of changes undone.
+     *
+     * @param mark - A mark returned by mark(), no later than the current one
      */
-    public void findAllMatches () {
-        int matchesMade = findMatch();
-        while (matchesMade > 0) {
-            matchesMade = findMatch();
+    public void undo (int mark) {
+        while (trailSize > mark) {
+            int cell = trailCells[--trailSize];
+            if (trailNumbers[trailSize] != 0) {
+                candidates[cell] |= trailNumbers[trailSize];
+                continue;
+            }
+            int bit = ~(1 << values[cell]);
+            board[layout.row(cell)][layout.col(cell)] = '.';
+            values[cell] = 0;
+            rows[layout.row(cell)] &= bit;
+            cols[layout.col(cell)] &= bit;
+            boxes[layout.box(cell)] &= bit;
+            addEmpty(cell);
         }
     }
 
     /**
-     * Generate a Guess with a Set of possible numbers for the given point.
+     * Generate a Guess with the possible numbers for the empty space with the fewest of them.
      *
-     * @return Guess object containing the next guess
+     * @return Guess object containing the next guess, or null if there are no empty spaces
      */
     public Guess nextGuess() {
-        Point guessPoint = null;
-        Set<Byte> guessPossible = null;
-        for (Point p : toFillIn) {
-            byte row = p.row, col = p.col, box = boxNumber(row, col);
-            Set<Byte> possible = findPossible(row, col, box);
-            if (guessPossible == null || possible.size() < guessPossible.size()) {
-                guessPoint = p;
+        int guessCell = -1;
+        int guessPossible = 0, guessCount = Integer.MAX_VALUE;
+        for (int i = 0; i < emptyCount; i++) {
+            int cell = empty[i];
+            int possible = getCandidates(cell);
+            int count = Integer.bitCount(possible);
+            if (count < guessCount) {
+                guessCell = cell;
                 guessPossible = possible;
+                guessCount = count;
             }
         }
-        if (guessPoint == null) return null;
-        // System.out.println(String.format("GUESS (%d, %d) IS: %s", guessPoint.col, guessPoint.row, guessPossible));
-        return new Guess(guessPoint, guessPossible);
+        if (guessCell == -1) return null;
+        return new Guess(layout.point(guessCell), guessPossible);
     }
 
     /**
@@ -260,23 +319,17 @@ public class SudokuBoard {
      * @param candidate - Candidate number to be inserted into the space
      */
     public void applyGuess(Point p, byte candidate) {
-        toFillIn.remove(p);
-        // System.out.println("    TRYING GUESS: " + candidate + " at " + "(" + p.col + ", " + p.row + ")");
-        byte row = p.row, col = p.col, box = boxNumber(row, col);
-        this.board[row][col] = (char) ('0' + candidate);
-        rows.get(row).add(candidate);
-        cols.get(col).add(candidate);
-        boxes.get(box).add(candidate);
+        fill(p.row * size + p.col, candidate);
     }
 
     /**
-     * Checks whether the board is solved by checking that each row contains BOARD_SIZE (9) elements.
+     * Checks whether the board is solved by checking that each row contains all size numbers.
      *
      * @return Whether the board is solved
      */
     public boolean isSolved() {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            if (rows.get(i).size() != BOARD_SIZE) return false;
+        for (int i = 0; i < size; i++) {
+            if (rows[i] != layout.getAllNumbers()) return false;
         }
         return true;
     }
@@ -291,9 +344,9 @@ public class SudokuBoard {
     @Override
     public String toString () {
         StringBuilder sb = new StringBuilder();
-        for (int row = 0; row < 9; row++) {
+        for (int row = 0; row < size; row++) {
             sb.append(Arrays.toString(board[row]));
-            if (row != BOARD_SIZE - 1) sb.append('\n');
+            if (row != size - 1) sb.append('\n');
         }
         return sb.toString();
     }
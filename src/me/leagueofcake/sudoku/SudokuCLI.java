@@ -14,6 +14,11 @@ import java.util.*;
  */
 public class SudokuCLI {
     private SudokuBoard currentPuzzle;
+    private long budgetMillis;
+    private long budgetGuesses;
+    private DancingLinks dancingLinks; // Kept for the size of the last board solved with it
+    // Number of solutions after which the count command stops counting
+    private static final long COUNT_LIMIT = 1000;
     private boolean running;
     private static final boolean DEBUG = true;
 
@@ -57,6 +62,12 @@ public class SudokuCLI {
                     help(); break;
                 case "solve":
                     solve(); break;
+                case "dlx":
+                    solveDancingLinks(); break;
+                case "count":
+                    countSolutions(); break;
+                case "budget":
+                    inputBudget(scanner); break;
                 default:
                     System.out.println("Unknown command. Type ? to see the commands list.");
                     break;
@@ -68,38 +79,74 @@ public class SudokuCLI {
      * Handles inputting a board from the command line. On success,
      * currentPuzzle is set to the newly created board.
      *
-     * Reads PUZZLE_WIDTH numbers on each line, with PUZZLE_HEIGHT lines.
-     * If any input line is invalid (incorrect number of numbers
-     * on line/non-integers found), re-requests the line.
+     * The size of the board (9x9, 16x16 or 25x25 - any square up to 25) is taken from the first line, and each
+     * following line must be the same width. Lines are either one symbol per space (1 - 9, then A - P for 10 - 25),
+     * or numbers separated by spaces, with . for an empty space in both.
+     * If any input line is invalid, re-requests the line.
      *
      * @param scanner Scanner object
      */
     private void inputBoard (Scanner scanner) {
-        System.out.println(String.format("Type %s characters per line (%s - %s), or . for an empty space.",
-                SudokuBoard.BOARD_SIZE, 1, SudokuBoard.BOARD_SIZE));
-
-        char[][] inputBoard = new char[SudokuBoard.BOARD_SIZE][SudokuBoard.BOARD_SIZE];
-        for (int row = 0; row < SudokuBoard.BOARD_SIZE; row++) {
-            String splitInput = scanner.nextLine().trim();
-            if (splitInput.length() != SudokuBoard.BOARD_SIZE) {
-                System.out.println("Error: invalid input size for the row");
+        System.out.println("Type a row per line - 9, 16 or 25 characters (1 - 9, then A - P for 10 - 25), or numbers " +
+                "separated by spaces, with . for an empty space.");
+
+        char[][] inputBoard = null;
+        for (int row = 0; inputBoard == null || row < inputBoard.length; row++) {
+            char[] parsed = parseRow(scanner.nextLine().trim(), inputBoard == null ? 0 : inputBoard.length);
+            if (parsed == null) {
                 row--;
             } else {
-                for (int col = 0; col < SudokuBoard.BOARD_SIZE; col++) {
-                    char c = splitInput.charAt(col);
-                    if (c == '.' || (1 <= c - '0' && c - '0' <= 9)) {
-                        inputBoard[row][col] = c;
-                    } else {
-                        System.out.println("Non-integers found in input!");
-                        row--;
-                    }
-                }
+                if (inputBoard == null) inputBoard = new char[parsed.length][];
+                inputBoard[row] = parsed;
             }
         }
 
         currentPuzzle = new SudokuBoard(inputBoard);
     }
 
+    /**
+     * Parses a row of the board, printing an error message if it is invalid.
+     *
+     * @param line - The input line
+     * @param size - The width of the board, or 0 if this is the first row (which sets the width)
+     * @return The symbols of the row, or null if the row is invalid.
+     */
+    private char[] parseRow (String line, int size) {
+        String[] words = line.split("\\s+");
+        String[] tokens = line.isEmpty() ? new String[0] : words.length > 1 ? words : line.split("");
+        int width = size == 0 ? tokens.length : size;
+        int boxSize = (int) Math.round(Math.sqrt(width));
+        if (tokens.length != width || width == 0 || boxSize * boxSize != width || boxSize > BoardLayout.MAX_BOX_SIZE) {
+            System.out.println(size == 0 ? "Error: rows must have 1, 4, 9, 16 or 25 spaces"
+                    : "Error: invalid input size for the row, expected " + size);
+            return null;
+        }
+
+        char[] row = new char[width];
+        for (int col = 0; col < width; col++) {
+            String token = tokens[col];
+            int number;
+            if (token.equals(".")) {
+                row[col] = '.';
+                continue;
+            } else if (token.length() == 1) {
+                number = BoardLayout.toNumber(token.charAt(0));
+            } else {
+                try {
+                    number = Integer.parseInt(token);
+                } catch (NumberFormatException e) {
+                    number = 0;
+                }
+            }
+            if (number < 1 || number > width) {
+                System.out.println(String.format("Error: '%s' is not a number from 1 to %d", token, width));
+                return null;
+            }
+            row[col] = BoardLayout.toSymbol(number);
+        }
+        return row;
+    }
+
     /**
      * Prints out the board, if one is loaded.
      */
@@ -114,9 +161,12 @@ public class SudokuCLI {
      */
     private void help () {
         String helpText = "Commands List\n" +
-                "i      Input a Sudoku board from the command line\n" +
+                "i      Input a Sudoku board (9x9, 16x16 or 25x25) from the command line\n" +
                 "p      Prints the currently loaded board\n" +
                 "solve  Attempts to solve the Sudoku puzzle\n" +
+                "dlx    Solves the Sudoku puzzle as an exact cover problem (Dancing Links)\n" +
+                "count  Counts the solutions of the Sudoku puzzle (up to 1000)\n" +
+                "budget Sets the time and guess limits for solving (0 for no limit)\n" +
                 "?      Displays this command list\n" +
                 "q      Quits the program\n";
         System.out.println(helpText);
@@ -128,7 +178,102 @@ public class SudokuCLI {
     private void solve () {
         if (checkPuzzleLoaded()) {
             Solver solver = new Solver(currentPuzzle);
-            solver.solveSudoku();
+            solver.setBudget(newBudget());
+            printResult(solver.solveSudoku());
+            printPropagation(solver.getPropagator());
+        }
+    }
+
+    /**
+     * Solves the current board using Dancing Links.
+     */
+    private void solveDancingLinks () {
+        if (checkPuzzleLoaded()) {
+            DancingLinks dancingLinks = dancingLinks();
+            dancingLinks.setBudget(newBudget());
+            printResult(dancingLinks.solve(currentPuzzle));
+        }
+    }
+
+    /**
+     * Counts the solutions of the current board using Dancing Links, up to COUNT_LIMIT.
+     */
+    private void countSolutions () {
+        if (checkPuzzleLoaded()) {
+            DancingLinks dancingLinks = dancingLinks();
+            dancingLinks.setBudget(newBudget());
+            SolveResult result = dancingLinks.countSolutions(currentPuzzle, COUNT_LIMIT);
+            printResult(result);
+            System.out.println(String.format(result.getSolutionCount() == COUNT_LIMIT ? "At least %d solutions."
+                    : "%d solutions.", result.getSolutionCount()));
+        }
+    }
+
+    /**
+     * @return Dancing Links for the size of the current board, built again only when the size changes.
+     */
+    private DancingLinks dancingLinks () {
+        if (dancingLinks == null || dancingLinks.getSize() != currentPuzzle.getSize()) {
+            dancingLinks = new DancingLinks(currentPuzzle.getLayout().getBoxSize());
+        }
+        return dancingLinks;
+    }
+
+    /**
+     * @return A new budget with the current limits, or null if there are none.
+     */
+    private SearchBudget newBudget () {
+        return budgetMillis > 0 || budgetGuesses > 0 ? new SearchBudget(budgetMillis, budgetGuesses) : null;
+    }
+
+    /**
+     * Prints out a solver's result - the solved board (if any) and statistics about the search.
+     *
+     * @param result - The result returned by the solver
+     */
+    private void printResult (SolveResult result) {
+        System.out.println(result.getMessage());
+        if (result.getBoard() != null) System.out.println(result.getBoard());
+        System.out.println(String.format("Made %d guesses (%d backtracked) in %.1f ms.", result.getGuesses(),
+                result.getBacktracks(), result.getElapsedNanos() / 1e6));
+    }
+
+    /**
+     * Prints out how much each technique of a propagator did, skipping the techniques that did nothing.
+     *
+     * @param propagator - The propagator used by the solver
+     */
+    private void printPropagation (Propagator propagator) {
+        Technique[] techniques = propagator.getTechniques();
+        long[] counts = propagator.getCounts();
+        StringJoiner deduced = new StringJoiner(", ", "Propagation: ", ".");
+        deduced.setEmptyValue("Propagation: nothing deduced.");
+        for (int i = 0; i < techniques.length; i++) {
+            if (counts[i] > 0) deduced.add(techniques[i].getName() + " " + counts[i]);
+        }
+        System.out.println(deduced);
+    }
+
+    /**
+     * Handles setting the time and guess limits for solving from the command line.
+     *
+     * @param scanner Scanner object
+     */
+    private void inputBudget (Scanner scanner) {
+        System.out.println("Type the time limit in ms and the guess limit, separated by a space (0 for no limit).");
+        String[] splitInput = scanner.nextLine().trim().split("\\s+");
+        try {
+            if (splitInput.length != 2) throw new NumberFormatException();
+            long millis = Long.parseLong(splitInput[0]);
+            long guesses = Long.parseLong(splitInput[1]);
+            if (millis < 0 || guesses < 0) throw new NumberFormatException();
+            budgetMillis = millis;
+            budgetGuesses = guesses;
+            System.out.println(String.format("Solving limited to %s and %s.",
+                    millis == 0 ? "any time" : millis + " ms",
+                    guesses == 0 ? "any number of guesses" : guesses + " guesses"));
+        } catch (NumberFormatException e) {
+            System.out.println("Error: expected two non-negative integers");
         }
     }
 
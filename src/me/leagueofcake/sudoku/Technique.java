@@ -0,0 +1,24 @@
+package me.leagueofcake.sudoku;
+
+/**
+ * Technique interface - a deduction which fills in spaces or eliminates possible numbers without guessing, run by a
+ * Propagator.
+ *
+ * Techniques work through SudokuBoard.place() and SudokuBoard.eliminate(), so every change they make is recorded on
+ * the board's trail and undone when the Solver backtracks.
+ */
+public interface Technique {
+    /**
+     * @return The name of the technique, for printing.
+     */
+    String getName ();
+
+    /**
+     * Makes one pass of the technique over the board.
+     *
+     * @param board - The board to be changed
+     * @return The number of spaces filled in plus the number of possible numbers eliminated, or -1 if the board was
+     * found to be invalid.
+     */
+    int apply (SudokuBoard board);
+}